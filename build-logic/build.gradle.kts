@@ -20,6 +20,7 @@ val allConstraints = configurations.create("allConstraints") conf@{
 dependencies {
     allConstraints(platform("com.fasterxml.jackson:jackson-bom:2.22.1"))
     allConstraints(platform("org.ow2.asm:asm-bom:9.10.1"))
+    allConstraints(platform("org.junit:junit-bom:5.14.4"))
 
     compileOnly("org.jetbrains:annotations:26.1.0")
 
@@ -27,12 +28,19 @@ dependencies {
 
     implementation("com.google.guava:guava:33.6.0-jre")
     implementation("com.fasterxml.jackson.core:jackson-databind")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jdk8")
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310")
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-guava")
-    implementation("org.ow2.asm:asm-tree")
+    implementation("org.ow2.asm:asm")
     implementation("org.apache.maven:maven-model:3.9.16")
     implementation("org.assertj:assertj-core:3.27.7")
+
+    testImplementation("org.junit.jupiter:junit-jupiter-api")
+    testImplementation("org.junit.jupiter:junit-jupiter-params")
+
+    testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 tasks.withType<JavaCompile>().configureEach {
@@ -51,6 +59,18 @@ tasks.withType<JavaCompile>().configureEach {
     ))
 }
 
+tasks.withType<Test>().configureEach {
+    useJUnitPlatform()
+
+    // Tests must not use the persistent stores of real builds in the Gradle user home
+    systemProperty("build-logic.blob-store.dir", temporaryDir.resolve("blobs").path)
+    systemProperty("build-logic.zip-index-store.dir", temporaryDir.resolve("zip-index").path)
+
+    testLogging {
+        events("PASSED", "SKIPPED", "FAILED")
+    }
+}
+
 gradlePlugin {
     plugins {
         create("build-logic") {
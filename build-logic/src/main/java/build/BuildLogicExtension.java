@@ -1,11 +1,21 @@
 package build;
 
+import build.tasks.ExtractGradleFiles;
+import build.tasks.ProcessGradleDependencies;
+import build.utils.DataFormat;
 import build.utils.WithGradleVersion;
 import build.utils.WithLocalBuildRepository;
 import build.utils.WithPublishLicense;
 import build.utils.WithPublishRepository;
+import java.io.File;
+import java.util.List;
 import javax.inject.Inject;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.provider.SetProperty;
 import org.gradle.util.GradleVersion;
 
 public abstract class BuildLogicExtension
@@ -15,13 +25,82 @@ public abstract class BuildLogicExtension
         getGradleVersion().convention(GradleVersion.current().getVersion());
     }
 
+    /**
+     * More Gradle versions to process in the same build, in addition to {@link #getGradleVersion()}.
+     * Every version gets its own chain of tasks, from {@link ExtractGradleFiles} to the verification
+     * of the published artifacts. The chains of different versions run concurrently.
+     */
+    public abstract SetProperty<String> getGradleVersions();
+
+    /**
+     * The maximum number of nested Gradle builds run by {@link ExtractGradleFiles} tasks concurrently.
+     * Every nested build starts its own Gradle daemon.
+     */
+    public abstract Property<Integer> getMaxConcurrentGradleBuilds();
+
+    {
+        getMaxConcurrentGradleBuilds().convention(Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
+    }
+
 
     {
         getLocalBuildRepository().convention(getLayout().getBuildDirectory().dir("m2"));
     }
 
 
+    /**
+     * If enabled, {@link ProcessGradleDependencies} produces the dependencies to publish, instead of the chain
+     * of separate tasks. The separate tasks are cacheable one by one, so they are used by default.
+     */
+    public abstract Property<Boolean> getFusedDependenciesProcessing();
+
+    {
+        getFusedDependenciesProcessing().convention(false);
+    }
+
+
+    /**
+     * The format of the dependency metadata files passed between the tasks. JSON is human-readable,
+     * Smile is smaller and faster to process.
+     */
+    public abstract Property<DataFormat> getDependenciesInfoFormat();
+
+    {
+        getDependenciesInfoFormat().convention(DataFormat.JSON);
+    }
+
+
+    /**
+     * Unpacked Gradle {@code -all} distributions used by {@link ExtractGradleFiles} instead of downloading them.
+     * Includes {@code GRADLE_HOME} by default.
+     */
+    public abstract ConfigurableFileCollection getGradleInstallationDirectories();
+
+    {
+        getGradleInstallationDirectories().from(
+            getProviders().environmentVariable("GRADLE_HOME")
+                .map(path -> List.of(new File(path)))
+                .orElse(List.of())
+        );
+    }
+
+    /**
+     * A directory with {@code gradle-<version>-all.zip} archives used by {@link ExtractGradleFiles}
+     * instead of downloading them. Set via {@code GRADLE_DISTRIBUTIONS_MIRROR_DIR} environment variable by default.
+     */
+    public abstract DirectoryProperty getGradleDistributionsMirrorDirectory();
+
+    {
+        getGradleDistributionsMirrorDirectory().convention(getLayout().getProjectDirectory().dir(
+            getProviders().environmentVariable("GRADLE_DISTRIBUTIONS_MIRROR_DIR")
+        ));
+    }
+
+
     @Inject
     protected abstract ProjectLayout getLayout();
 
+    @Inject
+    protected abstract ProviderFactory getProviders();
+
 }
@@ -2,6 +2,7 @@ package build;
 
 import static build.Constants.FALLBACK_JAVA_VERSION;
 import static build.Constants.GRADLE_API_PUBLISH_GROUP;
+import static build.Constants.LOCAL_BUILD_REPOSITORY_NAME;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import build.tasks.AbstractGradleFilesConsumerTask;
@@ -9,17 +10,21 @@ import build.tasks.AbstractProducingDependenciesInfoTask;
 import build.tasks.CompleteDependencies;
 import build.tasks.CreateSimpleGradleDependencies;
 import build.tasks.ExtractGradleFiles;
+import build.tasks.ProcessGradleDependencies;
 import build.tasks.ProcessGradleModuleClasspath;
 import build.tasks.ProcessModuleRegistry;
 import build.tasks.PublishArtifacts;
 import build.tasks.PublishArtifactsToLocalBuildRepository;
 import build.tasks.VerifyPublishedArtifactsToLocalBuildRepository;
 import build.utils.DependenciesInjectable;
+import build.utils.GradleBuildsService;
 import build.utils.Utils;
 import build.utils.WithGradleVersion;
 import build.utils.WithLocalBuildRepository;
 import build.utils.WithPublishLicense;
 import build.utils.WithPublishRepository;
+import build.utils.ZipFilesService;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
@@ -31,6 +36,7 @@ import org.gradle.api.artifacts.dsl.RepositoryHandler;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.api.tasks.testing.AbstractTestTask;
 import org.gradle.api.tasks.testing.Test;
@@ -48,6 +54,13 @@ public abstract class BuildLogicPlugin implements Plugin<Project> {
         var extension = project.getExtensions().create("buildLogic", BuildLogicExtension.class);
         var gradleVersion = extension.getGradleVersion();
 
+        project.getGradle().getSharedServices().registerIfAbsent(ZipFilesService.NAME, ZipFilesService.class);
+        project.getGradle().getSharedServices().registerIfAbsent(
+            GradleBuildsService.NAME,
+            GradleBuildsService.class,
+            spec -> spec.getParameters().getMaxConcurrentBuilds().set(extension.getMaxConcurrentGradleBuilds())
+        );
+
         getTasks().configureEach(task -> {
             if (task instanceof WithGradleVersion typed) {
                 typed.getGradleVersion().convention(gradleVersion);
@@ -84,7 +97,7 @@ public abstract class BuildLogicPlugin implements Plugin<Project> {
             getRepositories().exclusiveContent(exclusive -> {
                 exclusive.forRepositories(
                     getRepositories().maven(maven -> {
-                        maven.setName("localBuildRepository");
+                        maven.setName(LOCAL_BUILD_REPOSITORY_NAME);
                         maven.setUrl(extension.getLocalBuildRepository().getAsFile().get().toURI());
                     })
                 );
@@ -95,12 +108,18 @@ public abstract class BuildLogicPlugin implements Plugin<Project> {
         });
 
 
-        var extractGradleFiles = getTasks().register(
-            "extractGradleFiles",
-            ExtractGradleFiles.class,
-            task -> {
-            }
-        );
+        var gradleUserHomeDir = project.getGradle().getGradleUserHomeDir();
+        getTasks().withType(ExtractGradleFiles.class).configureEach(task -> {
+            task.getGradleInstallationDirectories().from(extension.getGradleInstallationDirectories());
+            task.getGradleDistributionsMirrorDirectory().convention(
+                extension.getGradleDistributionsMirrorDirectory()
+            );
+            task.getWrapperDistributionsDirectory().convention(project.getLayout().dir(
+                project.provider(() -> new File(gradleUserHomeDir, "wrapper/dists"))
+            ));
+        });
+
+        var extractGradleFiles = getTasks().register("extractGradleFiles", ExtractGradleFiles.class);
 
         getTasks().withType(AbstractGradleFilesConsumerTask.class).configureEach(task -> {
             task.getGradleFilesDirectory().convention(
@@ -108,6 +127,14 @@ public abstract class BuildLogicPlugin implements Plugin<Project> {
             );
         });
 
+        getTasks().withType(AbstractProducingDependenciesInfoTask.class).configureEach(task -> {
+            task.getGradleDependenciesFormat().convention(extension.getDependenciesInfoFormat());
+        });
+
+        getTasks().withType(PublishArtifactsToLocalBuildRepository.class).configureEach(task -> {
+            task.getGradlePublishedDependenciesFormat().convention(extension.getDependenciesInfoFormat());
+        });
+
 
         var simpleGradleDependencies = getTasks().register(
             "simpleGradleDependencies",
@@ -150,12 +177,30 @@ public abstract class BuildLogicPlugin implements Plugin<Project> {
         );
 
 
+        var processGradleDependencies = getTasks().register(
+            "processGradleDependencies",
+            ProcessGradleDependencies.class,
+            task -> {
+                task.getRawGradleDependenciesFile().convention(
+                    extractGradleFiles.flatMap(ExtractGradleFiles::getGradleRawDependenciesJsonFile)
+                );
+            }
+        );
+
+
         var publishArtifactsToLocalBuildRepository = getTasks().register(
             "publishArtifactsToLocalBuildRepository",
             PublishArtifactsToLocalBuildRepository.class,
             task -> {
                 task.getGradleDependenciesFile().convention(
-                    completeDependencies.flatMap(AbstractProducingDependenciesInfoTask::getGradleDependenciesJsonFile)
+                    extension.getFusedDependenciesProcessing().flatMap(fused -> fused
+                        ? processGradleDependencies.flatMap(
+                            AbstractProducingDependenciesInfoTask::getGradleDependenciesJsonFile
+                        )
+                        : completeDependencies.flatMap(
+                            AbstractProducingDependenciesInfoTask::getGradleDependenciesJsonFile
+                        )
+                    )
                 );
             }
         );
@@ -179,6 +224,18 @@ public abstract class BuildLogicPlugin implements Plugin<Project> {
             task.dependsOn(verifyPublishedArtifactsToLocalBuildRepository);
         });
 
+
+        project.afterEvaluate(_ -> {
+            extension.getGradleVersions().finalizeValueOnRead();
+
+            var verifyGradleVersionsTasks = extension.getGradleVersions().get().stream()
+                .map(version -> registerGradleVersionTasks(project, version))
+                .toList();
+            getTasks().register("verifyAllGradleVersions", task -> {
+                task.dependsOn(verifyGradleVersionsTasks);
+            });
+        });
+
         getTasks().withType(Test.class).configureEach(task -> {
             task.notCompatibleWithConfigurationCache("Resolves configurations at execution");
 
@@ -210,6 +267,66 @@ public abstract class BuildLogicPlugin implements Plugin<Project> {
         );
     }
 
+    /**
+     * Registers the chain of tasks for an additional Gradle version. The chain uses fused dependencies processing,
+     * and publishes to its own local build repository, as publishing cleans the repository.
+     */
+    private TaskProvider<VerifyPublishedArtifactsToLocalBuildRepository> registerGradleVersionTasks(
+        Project project,
+        String gradleVersion
+    ) {
+        var extractGradleFiles = getTasks().register(
+            "extractGradleFiles-" + gradleVersion,
+            ExtractGradleFiles.class,
+            task -> {
+                task.getGradleVersion().set(gradleVersion);
+            }
+        );
+        var gradleFilesDirectory = extractGradleFiles.flatMap(ExtractGradleFiles::getGradleFilesDirectory);
+
+        var processGradleDependencies = getTasks().register(
+            "processGradleDependencies-" + gradleVersion,
+            ProcessGradleDependencies.class,
+            task -> {
+                task.getGradleFilesDirectory().set(gradleFilesDirectory);
+                task.getRawGradleDependenciesFile().set(
+                    extractGradleFiles.flatMap(ExtractGradleFiles::getGradleRawDependenciesJsonFile)
+                );
+            }
+        );
+
+        var publishArtifactsToLocalBuildRepository = getTasks().register(
+            "publishArtifactsToLocalBuildRepository-" + gradleVersion,
+            PublishArtifactsToLocalBuildRepository.class,
+            task -> {
+                task.getGradleFilesDirectory().set(gradleFilesDirectory);
+                task.getGradleDependenciesFile().set(
+                    processGradleDependencies
+                        .flatMap(AbstractProducingDependenciesInfoTask::getGradleDependenciesJsonFile)
+                );
+                task.getLocalBuildRepository().set(
+                    project.getLayout().getBuildDirectory().dir("m2-gradle-" + gradleVersion)
+                );
+            }
+        );
+
+        return getTasks().register(
+            "verifyPublishedArtifactsToLocalBuildRepository-" + gradleVersion,
+            VerifyPublishedArtifactsToLocalBuildRepository.class,
+            task -> {
+                task.getLocalBuildRepository().set(
+                    publishArtifactsToLocalBuildRepository
+                        .flatMap(PublishArtifactsToLocalBuildRepository::getLocalBuildRepository)
+                );
+                task.getGradlePublishedDependenciesJsonFile().set(
+                    publishArtifactsToLocalBuildRepository
+                        .flatMap(PublishArtifactsToLocalBuildRepository::getGradlePublishedDependenciesJsonFile)
+                );
+            }
+        );
+    }
+
+
     private void applyBasicJavaSettings(Project project) {
         project.getExtensions().getByType(JavaPluginExtension.class).getToolchain().getLanguageVersion().set(
             JavaLanguageVersion.of(25) // TODO: generate
@@ -11,6 +11,8 @@ public interface Constants {
 
     String GRADLE_API_BOM_NAME = "gradle-api-bom";
 
+    String LOCAL_BUILD_REPOSITORY_NAME = "localBuildRepository";
+
 
     // TODO: generate
     Map<GradleVersion, JavaLanguageVersion> MIN_GRADLE_VERSION_TO_JAVA_VERSION =
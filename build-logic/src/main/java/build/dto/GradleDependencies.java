@@ -2,8 +2,6 @@ package build.dto;
 
 import static com.google.common.base.CaseFormat.LOWER_CAMEL;
 import static com.google.common.base.CaseFormat.LOWER_HYPHEN;
-import static java.util.Collections.unmodifiableSet;
-import static java.util.stream.Collectors.toCollection;
 import static lombok.AccessLevel.NONE;
 
 import build.utils.JsonHooks;
@@ -11,7 +9,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.File;
 import java.nio.file.Path;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -19,7 +19,9 @@ import java.util.Set;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
+import org.jspecify.annotations.Nullable;
 
 @Data
 public class GradleDependencies implements JsonHooks {
@@ -33,63 +35,146 @@ public class GradleDependencies implements JsonHooks {
     @JsonProperty(index = 3)
     private Map<GradleDependencyId, GradleDependencyInfo> dependencies = new LinkedHashMap<>();
 
+    public void setDependencies(Map<GradleDependencyId, GradleDependencyInfo> dependencies) {
+        this.dependencies = dependencies;
+        invalidateGraph();
+    }
 
-    public Set<GradleDependencyId> getAllDependencies(GradleDependencyId id) {
-        var dependencies = this.dependencies.get(id);
-        if (dependencies == null) {
-            throw new IllegalStateException("Not registered dependency: " + id);
+
+    @Getter(NONE)
+    @Setter(NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    @Nullable
+    private volatile GradleDependenciesGraph graph;
+
+    @Getter(NONE)
+    @Setter(NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    private volatile boolean cleanedUp;
+
+    private GradleDependenciesGraph getGraph() {
+        var result = graph;
+        if (result == null) {
+            synchronized (this) {
+                result = graph;
+                if (result == null) {
+                    result = new GradleDependenciesGraph(dependencies);
+                    graph = result;
+                }
+            }
         }
+        return result;
+    }
 
-        var result = new LinkedHashSet<>(dependencies.getDependencies());
-        dependencies.getDependencies().stream()
-            .map(this::getAllDependencies)
-            .flatMap(Collection::stream)
-            .forEach(result::add);
-        return unmodifiableSet(result);
+    /**
+     * Marks the graph as changed. Must be called after the graph has been changed via {@link #getDependencies()},
+     * or after dependency IDs have been changed. Drops the graph index, and makes the next {@link #cleanup()}
+     * call process the graph again.
+     *
+     * <p>{@link #setDependencies(Map)} and {@link #internGradleDependencyIds()} call it themselves.
+     */
+    public void invalidateGraph() {
+        graph = null;
+        cleanedUp = false;
+    }
+
+    /**
+     * Returns all transitive dependencies of the dependency.
+     *
+     * <p>The result is answered from a graph index, which is built on the first call,
+     * and is dropped by {@link #invalidateGraph()}.
+     */
+    public Set<GradleDependencyId> getAllDependencies(GradleDependencyId id) {
+        return getGraph().getAllDependencies(id);
     }
 
 
+    /**
+     * Removes redundant dependencies. Does nothing if the graph hasn't been changed since the last call,
+     * see {@link #invalidateGraph()}.
+     */
     public void cleanup() {
+        if (cleanedUp) {
+            return;
+        }
+
         removeRedundantDependencies();
+        graph = null;
+        cleanedUp = true;
     }
 
+    /**
+     * Removes dependencies that are reachable via other direct dependencies,
+     * and replaces groups of dependencies with a node that has exactly these dependencies.
+     */
     private void removeRedundantDependencies() {
-        dependencies.forEach((id, info) -> {
-            if (info.getDependencies().isEmpty()) {
-                return;
-            }
+        removeTransitiveDependencies();
+        if (groupDependencies()) {
+            // a group node can make other dependencies of its new dependents reachable
+            removeTransitiveDependencies();
+        }
+    }
 
-            dependencies.forEach((otherId, otherInfo) -> {
-                if (id.equals(otherId)) {
-                    return;
-                }
+    private void removeTransitiveDependencies() {
+        var graph = new GradleDependenciesGraph(dependencies);
+        dependencies.values().forEach(info -> graph.removeTransitiveDependencies(info.getDependencies()));
+    }
 
-                if (otherInfo.getDependencies().contains(id)) {
-                    otherInfo.getDependencies().removeAll(info.getDependencies());
-                }
+    /**
+     * Replaces dependencies with a node without an artifact (like {@code local-groovy}),
+     * if they include all the node's dependencies.
+     *
+     * <p>Nodes with an artifact are skipped: a node that depends on such a node can't have any of its dependencies
+     * after the transitive reduction. Candidates are taken from the reverse index of the first dependency
+     * of the group, in the order of {@link #getDependencies()}.
+     */
+    private boolean groupDependencies() {
+        var changed = false;
+        var infos = new ArrayList<GradleDependencyInfo>(dependencies.size());
+        var dependents = new HashMap<GradleDependencyId, BitSet>();
+        dependencies.values().forEach(info -> {
+            var index = infos.size();
+            infos.add(info);
+            info.getDependencies().forEach(depId -> dependents.computeIfAbsent(depId, _ -> new BitSet()).set(index));
+        });
 
-                var otherHasAllDependencies = otherInfo.getDependencies().containsAll(info.getDependencies());
-                if (!otherHasAllDependencies) {
-                    return;
-                }
+        var index = -1;
+        for (var entry : dependencies.entrySet()) {
+            index++;
+            var id = entry.getKey();
+            var info = entry.getValue();
+            var groupDeps = info.getDependencies();
+            if (info.hasArtifact() || groupDeps.isEmpty()) {
+                continue;
+            }
 
-                if (info.hasArtifact()) {
-                    if (!otherInfo.getDependencies().contains(id)) {
-                        return;
-                    }
+            var candidates = (BitSet) dependents.get(groupDeps.iterator().next()).clone();
+            candidates.clear(index);
+            for (var otherIndex : candidates.stream().toArray()) {
+                var otherInfo = infos.get(otherIndex);
+                if (!otherInfo.getDependencies().containsAll(groupDeps)) {
+                    continue;
                 }
 
                 var newOtherDeps = new LinkedHashSet<GradleDependencyId>();
                 for (var otherDep : otherInfo.getDependencies()) {
-                    if (info.getDependencies().contains(otherDep)) {
+                    if (groupDeps.contains(otherDep)) {
                         newOtherDeps.add(id);
+                        dependents.get(otherDep).clear(otherIndex);
                     } else {
                         newOtherDeps.add(otherDep);
                     }
                 }
                 otherInfo.setDependencies(newOtherDeps);
-            });
-        });
+                dependents.computeIfAbsent(id, _ -> new BitSet()).set(otherIndex);
+                changed = true;
+            }
+        }
+        return changed;
     }
 
 
@@ -145,18 +230,31 @@ public class GradleDependencies implements JsonHooks {
     }
 
     public void internGradleDependencyIds() {
+        var changed = false;
         var newDeps = new LinkedHashMap<GradleDependencyId, GradleDependencyInfo>();
-        dependencies.forEach((id, info) -> {
-            id = internGradleDependencyId(id);
-
-            info.setDependencies(info.getDependencies().stream()
-                .map(this::internGradleDependencyId)
-                .collect(toCollection(LinkedHashSet::new)));
+        for (var entry : dependencies.entrySet()) {
+            var id = entry.getKey();
+            var info = entry.getValue();
+            var internedId = internGradleDependencyId(id);
+            changed |= internedId != id;
+
+            var internedDeps = new LinkedHashSet<GradleDependencyId>();
+            for (var depId : info.getDependencies()) {
+                var internedDepId = internGradleDependencyId(depId);
+                changed |= internedDepId != depId;
+                internedDeps.add(internedDepId);
+            }
+            info.setDependencies(internedDeps);
 
-            newDeps.put(id, info);
-        });
+            newDeps.put(internedId, info);
+        }
         dependencies.clear();
         dependencies.putAll(newDeps);
+
+        // IDs are replaced only if they haven't been interned yet, or if several of them have the same name
+        if (changed) {
+            invalidateGraph();
+        }
     }
 
     @Override
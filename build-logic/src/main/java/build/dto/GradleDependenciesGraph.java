@@ -0,0 +1,168 @@
+package build.dto;
+
+import static java.lang.String.join;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable index of the {@link GradleDependencies} graph.
+ *
+ * <p>Every dependency ID gets a dense {@code int} ID. Transitive closures are computed once,
+ * in topological order, and stored as one {@link BitSet} per node,
+ * so closure enumeration is linear in the closure size.
+ *
+ * <p>The index is a snapshot. {@link GradleDependencies} drops it when the graph is changed.
+ */
+class GradleDependenciesGraph {
+
+    private final List<GradleDependencyId> ids = new ArrayList<>();
+    private final Map<GradleDependencyId, Integer> indexes = new HashMap<>();
+    private final BitSet registered = new BitSet();
+    private final List<int[]> edges = new ArrayList<>();
+    private final int[] topologicalOrder;
+    private final BitSet[] closures;
+
+    GradleDependenciesGraph(Map<GradleDependencyId, GradleDependencyInfo> dependencies) {
+        dependencies.keySet().forEach(id -> registered.set(indexOf(id)));
+        dependencies.values().forEach(info -> info.getDependencies().forEach(this::indexOf));
+
+        dependencies.forEach((id, info) -> {
+            var index = indexOf(id);
+            var nodeEdges = info.getDependencies().stream()
+                .mapToInt(this::indexOf)
+                .toArray();
+            edges.set(index, nodeEdges);
+        });
+
+        this.topologicalOrder = sortTopologically();
+
+        this.closures = new BitSet[ids.size()];
+        for (var index : topologicalOrder) {
+            var closure = new BitSet(ids.size());
+            for (var edge : edges.get(index)) {
+                closure.set(edge);
+                closure.or(closures[edge]);
+            }
+            closures[index] = closure;
+        }
+    }
+
+    private int indexOf(GradleDependencyId id) {
+        var index = indexes.get(id);
+        if (index == null) {
+            index = ids.size();
+            ids.add(id);
+            edges.add(new int[0]);
+            indexes.put(id, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns node indexes ordered so that every node goes after all its dependencies.
+     */
+    private int[] sortTopologically() {
+        var result = new int[ids.size()];
+        var resultSize = 0;
+
+        var visited = new BitSet(ids.size());
+        var onStack = new BitSet(ids.size());
+        var stackNodes = new int[ids.size()];
+        var stackEdgeIndexes = new int[ids.size()];
+        for (var root = 0; root < ids.size(); root++) {
+            if (visited.get(root)) {
+                continue;
+            }
+
+            var stackSize = 0;
+            stackNodes[stackSize] = root;
+            stackEdgeIndexes[stackSize] = 0;
+            stackSize++;
+            visited.set(root);
+            onStack.set(root);
+
+            while (stackSize > 0) {
+                var node = stackNodes[stackSize - 1];
+                var nodeEdges = edges.get(node);
+                var edgeIndex = stackEdgeIndexes[stackSize - 1];
+                if (edgeIndex < nodeEdges.length) {
+                    stackEdgeIndexes[stackSize - 1]++;
+                    var next = nodeEdges[edgeIndex];
+                    if (onStack.get(next)) {
+                        var cycle = new ArrayList<String>();
+                        for (var i = 0; i < stackSize; i++) {
+                            if (!cycle.isEmpty() || stackNodes[i] == next) {
+                                cycle.add(ids.get(stackNodes[i]).getName());
+                            }
+                        }
+                        cycle.add(ids.get(next).getName());
+                        throw new IllegalStateException("Dependency cycle detected: " + join(" -> ", cycle));
+                    }
+                    if (!visited.get(next)) {
+                        visited.set(next);
+                        onStack.set(next);
+                        stackNodes[stackSize] = next;
+                        stackEdgeIndexes[stackSize] = 0;
+                        stackSize++;
+                    }
+
+                } else {
+                    onStack.clear(node);
+                    stackSize--;
+                    result[resultSize++] = node;
+                }
+            }
+        }
+
+        return result;
+    }
+
+
+    Set<GradleDependencyId> getAllDependencies(GradleDependencyId id) {
+        var closure = getClosure(id);
+
+        var notRegistered = (BitSet) closure.clone();
+        notRegistered.andNot(registered);
+        if (!notRegistered.isEmpty()) {
+            throw new IllegalStateException("Not registered dependency: " + ids.get(notRegistered.nextSetBit(0)));
+        }
+
+        var result = new LinkedHashSet<GradleDependencyId>();
+        closure.stream().mapToObj(ids::get).forEach(result::add);
+        return unmodifiableSet(result);
+    }
+
+    /**
+     * Removes dependencies that are reachable via other dependencies of the same set.
+     *
+     * <p>Closures of this snapshot are used, so the result doesn't depend on the order in which the sets
+     * of different nodes are processed: the transitive reduction of a DAG is unique, and it keeps all the closures.
+     */
+    void removeTransitiveDependencies(Set<GradleDependencyId> dependencies) {
+        if (dependencies.size() < 2) {
+            return;
+        }
+
+        var reachable = new BitSet(ids.size());
+        for (var dependency : dependencies) {
+            reachable.or(closures[indexes.get(dependency)]);
+        }
+        dependencies.removeIf(dependency -> reachable.get(indexes.get(dependency)));
+    }
+
+    private BitSet getClosure(GradleDependencyId id) {
+        var index = indexes.get(id);
+        if (index == null || !registered.get(index)) {
+            throw new IllegalStateException("Not registered dependency: " + id);
+        }
+        return closures[index];
+    }
+
+}
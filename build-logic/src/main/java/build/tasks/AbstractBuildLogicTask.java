@@ -1,5 +1,6 @@
 package build.tasks;
 
+import build.utils.ZipFilesService;
 import java.io.File;
 import java.nio.file.Path;
 import javax.inject.Inject;
@@ -7,7 +8,9 @@ import org.gradle.api.DefaultTask;
 import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.VerificationTask;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.jvm.toolchain.JavaToolchainService;
@@ -37,6 +40,10 @@ public abstract class AbstractBuildLogicTask extends DefaultTask {
     }
 
 
+    @ServiceReference(ZipFilesService.NAME)
+    public abstract Property<ZipFilesService> getZipFilesService();
+
+
     @Inject
     protected abstract ConfigurationContainer getConfigurations();
 
@@ -5,7 +5,8 @@ import static org.gradle.api.tasks.PathSensitivity.RELATIVE;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.regex.Pattern;
+import java.util.HashMap;
+import java.util.Map;
 import lombok.SneakyThrows;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.tasks.InputDirectory;
@@ -28,17 +29,49 @@ public abstract class AbstractGradleFilesConsumerTask extends AbstractBuildLogic
 
 
     @Nullable
-    @SneakyThrows
     protected final Path getGradleModuleFile(String moduleName) {
-        var moduleFileName = Pattern.compile(Pattern.quote(moduleName) + "-\\d.*\\.jar");
-        var gradleFilesDir = getGradleFilesDirectory().getAsFile().get().toPath();
-        try (var walk = walk(gradleFilesDir)) {
-            return walk
-                .filter(path -> moduleFileName.matcher(path.getFileName().toString()).matches())
-                .filter(Files::isRegularFile)
-                .findFirst()
-                .orElse(null);
+        return getGradleModuleFiles().get(moduleName);
+    }
+
+    @Nullable
+    private transient volatile Map<String, Path> gradleModuleFiles;
+
+    /**
+     * Returns module files by module name, calculated once per task execution.
+     *
+     * <p>A JAR file is registered under every name it can be found by: every prefix of its name
+     * that is followed by {@code -<digit>}. So, {@code gradle-core-api-9.0.jar} is found by both
+     * {@code gradle-core-api} and {@code gradle-core}. If several files match a name,
+     * the first one in the directory walk order wins.
+     */
+    @SneakyThrows
+    private Map<String, Path> getGradleModuleFiles() {
+        var result = gradleModuleFiles;
+        if (result == null) {
+            result = new HashMap<>();
+            var gradleFilesDir = getGradleFilesDirectory().getAsFile().get().toPath();
+            try (var walk = walk(gradleFilesDir)) {
+                var paths = walk
+                    .filter(path -> path.getFileName().toString().endsWith(".jar"))
+                    .filter(Files::isRegularFile)
+                    .toList();
+                for (var path : paths) {
+                    var fileName = path.getFileName().toString();
+                    var lastVersionDigitPos = fileName.length() - ".jar".length() - 1;
+                    for (var pos = 1; pos < lastVersionDigitPos; pos++) {
+                        if (fileName.charAt(pos) == '-' && isVersionDigit(fileName.charAt(pos + 1))) {
+                            result.putIfAbsent(fileName.substring(0, pos), path);
+                        }
+                    }
+                }
+            }
+            gradleModuleFiles = result;
         }
+        return result;
+    }
+
+    private static boolean isVersionDigit(char ch) {
+        return ch >= '0' && ch <= '9';
     }
 
 }
@@ -30,7 +30,7 @@ public abstract class AbstractMappingDependenciesInfoTask extends AbstractProduc
 
     @Override
     protected final GradleDependencies createGradleDependencies() throws Exception {
-        var deps = Json.JSON_READER.readValue(
+        var deps = Json.readValue(
             getGradleDependenciesFile().get().getAsFile(),
             GradleDependencies.class
         );
@@ -1,11 +1,15 @@
 package build.tasks;
 
+import static build.utils.ZipUtils.getZipFileInfoCacheStats;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.deleteIfExists;
 
 import build.dto.GradleDependencies;
+import build.utils.DataFormat;
 import build.utils.Json;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 
@@ -14,16 +18,35 @@ public abstract class AbstractProducingDependenciesInfoTask extends AbstractGrad
     protected abstract GradleDependencies createGradleDependencies() throws Exception;
 
 
+    /**
+     * The format of {@link #getGradleDependenciesJsonFile()}.
+     * Tasks that read the file detect its format, so it can be changed for every task independently.
+     */
+    @Input
+    public abstract Property<DataFormat> getGradleDependenciesFormat();
+
+    {
+        getGradleDependenciesFormat().convention(DataFormat.JSON);
+    }
+
+    /**
+     * The file with the produced {@link GradleDependencies}, written in {@link #getGradleDependenciesFormat()}.
+     * Despite the name, it's a Smile file if the format is {@link DataFormat#SMILE}.
+     * The name is kept, as {@code getGradleDependenciesFile()} is the input file of mapping tasks.
+     */
     @OutputFile
     public abstract RegularFileProperty getGradleDependenciesJsonFile();
 
     {
-        getGradleDependenciesJsonFile().convention(getLayout().getBuildDirectory().file(getName() + "/info.json"));
+        getGradleDependenciesJsonFile().convention(getGradleDependenciesFormat().flatMap(format ->
+            getLayout().getBuildDirectory().file(getName() + "/info." + format.getFileExtension())
+        ));
     }
 
 
     {
         onlyIf(__ -> {
+            getGradleDependenciesFormat().finalizeValueOnRead();
             getGradleDependenciesJsonFile().finalizeValueOnRead();
             return true;
         });
@@ -37,7 +60,9 @@ public abstract class AbstractProducingDependenciesInfoTask extends AbstractGrad
         createDirectories(outputFile.getParent());
 
         var result = createGradleDependencies();
-        Json.JSON_WRITER.writeValue(outputFile.toFile(), result);
+        Json.writeValue(outputFile.toFile(), getGradleDependenciesFormat().get(), result);
+
+        getLogger().info("ZIP file info cache: {}", getZipFileInfoCacheStats());
     }
 
 }
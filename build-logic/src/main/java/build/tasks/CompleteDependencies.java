@@ -5,7 +5,6 @@ import static build.utils.Utils.compareVersions;
 import static build.utils.Utils.substringBefore;
 import static build.utils.ZipUtils.getZipFileEntryNames;
 import static java.lang.String.join;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toCollection;
 
 import build.Constants;
@@ -18,7 +17,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.regex.Pattern;
-import java.util.zip.ZipFile;
 import lombok.SneakyThrows;
 import org.gradle.api.tasks.CacheableTask;
 import org.jspecify.annotations.Nullable;
@@ -90,213 +88,228 @@ public abstract class CompleteDependencies extends AbstractMappingDependenciesIn
     private static final Pattern PREBUILT_GROOVY_VERSION = Pattern.compile("^\\d+\\.\\d+-2\\..+$");
 
     @Override
-    protected GradleDependencies mapGradleDependencies(GradleDependencies gradleDependencies) {
-        gradleDependencies.getDependencies().forEach(this::updateFromPomProperties);
-        gradleDependencies.getDependencies().forEach(this::fixVersion);
-        gradleDependencies.getDependencies().forEach(this::updateGroup);
-        gradleDependencies.getDependencies().forEach(this::updateBomDependencyId);
-
-        var depIdsWithoutGroup = gradleDependencies.getDependencies()
-            .keySet()
-            .stream()
-            .filter(id -> id.getGroup().isEmpty())
-            .map(String::valueOf)
-            .toList();
-        if (!depIdsWithoutGroup.isEmpty()) {
-            throw new IllegalStateException("Can't determine groups for:\n  " + join("\n  ", depIdsWithoutGroup));
-        }
+    protected GradleDependencies mapGradleDependencies(GradleDependencies gradleDependencies) throws Exception {
+        return new Mapper(this).map(gradleDependencies);
+    }
 
-        fixSnapshotDependencies(gradleDependencies);
+    static class Mapper implements GradleDependenciesMapper {
 
-        return gradleDependencies;
-    }
+        private final AbstractGradleFilesConsumerTask task;
 
-    @SneakyThrows
-    private void updateFromPomProperties(GradleDependencyId depId, GradleDependencyInfo depInfo) {
-        var pomProperties = getPomProperties(depId, depInfo);
-        if (pomProperties == null) {
-            return;
+        Mapper(AbstractGradleFilesConsumerTask task) {
+            this.task = task;
         }
 
-        var group = pomProperties.getProperty("groupId");
-        if (group != null) {
-            depId.setGroup(group);
-        }
-    }
+        @Override
+        public GradleDependencies map(GradleDependencies gradleDependencies) throws Exception {
+            gradleDependencies.getDependencies().forEach(this::updateFromPomProperties);
+            gradleDependencies.getDependencies().forEach(this::fixVersion);
+            gradleDependencies.getDependencies().forEach(this::updateGroup);
+            gradleDependencies.getDependencies().forEach(this::updateBomDependencyId);
+
+            var depIdsWithoutGroup = gradleDependencies.getDependencies()
+                .keySet()
+                .stream()
+                .filter(id -> id.getGroup().isEmpty())
+                .map(String::valueOf)
+                .toList();
+            if (!depIdsWithoutGroup.isEmpty()) {
+                throw new IllegalStateException("Can't determine groups for:\n  " + join("\n  ", depIdsWithoutGroup));
+            }
 
-    private void fixVersion(GradleDependencyId depId, GradleDependencyInfo depInfo) {
-        var depNamePrefix = depId.getName() + "-";
+            fixSnapshotDependencies(gradleDependencies);
 
-        if (depNamePrefix.startsWith("jspecify-")) {
-            depId.setVersion(
-                substringBefore(depId.getVersion(), "-no-module-annotation")
-            );
-            return;
+            // dependency IDs have been changed
+            gradleDependencies.invalidateGraph();
+            return gradleDependencies;
         }
-    }
-
-    private void updateGroup(GradleDependencyId depId, GradleDependencyInfo depInfo) {
-        if (!depId.getGroup().isEmpty()) {
-            return;
-        }
-
-        var depNamePrefix = depId.getName() + "-";
 
+        @SneakyThrows
+        private void updateFromPomProperties(GradleDependencyId depId, GradleDependencyInfo depInfo) {
+            var pomProperties = getPomProperties(depId, depInfo);
+            if (pomProperties == null) {
+                return;
+            }
 
-        for (var depNameToGroupEntry : DEP_NAME_TO_GROUP.entrySet()) {
-            var baseDepName = depNameToGroupEntry.getKey();
-            if (depNamePrefix.startsWith(baseDepName + "-")) {
-                var group = depNameToGroupEntry.getValue();
+            var group = pomProperties.getProperty("groupId");
+            if (group != null) {
                 depId.setGroup(group);
-                return;
             }
         }
 
+        private void fixVersion(GradleDependencyId depId, GradleDependencyInfo depInfo) {
+            var depNamePrefix = depId.getName() + "-";
 
-        if (depNamePrefix.startsWith("groovy-")) {
-            if (PREBUILT_GROOVY_VERSION.matcher(depId.getVersion()).matches()) {
-                depId.setGroup(GRADLE_API_PUBLISH_GROUP); // some prebuilt groovy from Gradle
-                depInfo.setSyntheticGroup(true);
-            } else if (compareVersions(depId.getVersion(), "4") >= 0) {
-                depId.setGroup("org.apache.groovy");
-            } else {
-                depId.setGroup("org.codehaus.groovy");
+            if (depNamePrefix.startsWith("jspecify-")) {
+                depId.setVersion(
+                    substringBefore(depId.getVersion(), "-no-module-annotation")
+                );
+                return;
             }
-            return;
         }
 
+        private void updateGroup(GradleDependencyId depId, GradleDependencyInfo depInfo) {
+            if (!depId.getGroup().isEmpty()) {
+                return;
+            }
 
-        if (depNamePrefix.startsWith("gradle-")
-            || depNamePrefix.startsWith("local-groovy-")
-            || depNamePrefix.startsWith("native-platform-")
-        ) {
-            depId.setGroup(GRADLE_API_PUBLISH_GROUP);
-            return;
-        }
-
+            var depNamePrefix = depId.getName() + "-";
 
-        var depFile = Optional.ofNullable(depInfo.getPath())
-            .map(this::getProjectRelativeFile)
-            .orElse(null);
 
-        if (depNamePrefix.startsWith("annotations-") && depFile != null) {
-            var hasJetbrainsNonNull = getZipFileEntryNames(depFile).stream()
-                .anyMatch("org/jetbrains/annotations/NotNull.class"::equals);
-            if (hasJetbrainsNonNull) {
-                depId.setGroup("org.jetbrains");
+            for (var depNameToGroupEntry : DEP_NAME_TO_GROUP.entrySet()) {
+                var baseDepName = depNameToGroupEntry.getKey();
+                if (depNamePrefix.startsWith(baseDepName + "-")) {
+                    var group = depNameToGroupEntry.getValue();
+                    depId.setGroup(group);
+                    return;
+                }
             }
-            return;
-        }
 
-        if (depNamePrefix.startsWith("core-") && depFile != null) {
-            var hasJdkCoreClasses = getZipFileEntryNames(depFile).stream()
-                .anyMatch(it -> it.startsWith("org/eclipse/jdt/core/") && it.endsWith(".class"));
-            if (hasJdkCoreClasses) {
-                depId.setGroup("org.eclipse.jdt");
+
+            if (depNamePrefix.startsWith("groovy-")) {
+                if (PREBUILT_GROOVY_VERSION.matcher(depId.getVersion()).matches()) {
+                    depId.setGroup(GRADLE_API_PUBLISH_GROUP); // some prebuilt groovy from Gradle
+                    depInfo.setSyntheticGroup(true);
+                } else if (compareVersions(depId.getVersion(), "4") >= 0) {
+                    depId.setGroup("org.apache.groovy");
+                } else {
+                    depId.setGroup("org.codehaus.groovy");
+                }
+                return;
             }
-            return;
-        }
-    }
 
-    private void updateBomDependencyId(GradleDependencyId depId, GradleDependencyInfo depInfo) {
-        if (depInfo.getBom() != null) {
-            return;
-        }
 
-        if (depId.getGroup().equals("org.apache.groovy")
-            || depId.getGroup().equals("org.codehaus.groovy")
-        ) {
-            if (compareVersions(depId.getVersion(), "2.4.19") >= 0) {
-                depInfo.setBom(depId.withName("groovy-bom"));
+            if (depNamePrefix.startsWith("gradle-")
+                || depNamePrefix.startsWith("local-groovy-")
+                || depNamePrefix.startsWith("native-platform-")
+            ) {
+                depId.setGroup(GRADLE_API_PUBLISH_GROUP);
+                return;
             }
-            return;
-        }
 
-        if (depId.getGroup().equals("org.jetbrains.kotlin")) {
-            if (compareVersions(depId.getVersion(), "1.3.20") >= 0) {
-                depInfo.setBom(depId.withName("kotlin-bom"));
-            }
-            return;
-        }
 
-        if (depId.getGroup().equals("org.slf4j")) {
-            if (compareVersions(depId.getVersion(), "2.0.8") >= 0) {
-                depInfo.setBom(depId.withName("slf4j-bom"));
+            var depFile = Optional.ofNullable(depInfo.getPath())
+                .map(task::getProjectRelativeFile)
+                .orElse(null);
+
+            if (depNamePrefix.startsWith("annotations-") && depFile != null) {
+                var hasJetbrainsNonNull = getZipFileEntryNames(depFile)
+                    .contains("org/jetbrains/annotations/NotNull.class");
+                if (hasJetbrainsNonNull) {
+                    depId.setGroup("org.jetbrains");
+                }
+                return;
             }
-            return;
-        }
 
-        if (depId.getGroup().equals("org.ow2.asm")) {
-            if (compareVersions(depId.getVersion(), "9.3") >= 0) {
-                depInfo.setBom(depId.withName("asm-bom"));
+            if (depNamePrefix.startsWith("core-") && depFile != null) {
+                var hasJdkCoreClasses = getZipFileEntryNames(depFile).startingWith("org/eclipse/jdt/core/").stream()
+                    .anyMatch(it -> it.endsWith(".class"));
+                if (hasJdkCoreClasses) {
+                    depId.setGroup("org.eclipse.jdt");
+                }
+                return;
             }
-            return;
         }
-    }
 
+        private void updateBomDependencyId(GradleDependencyId depId, GradleDependencyInfo depInfo) {
+            if (depInfo.getBom() != null) {
+                return;
+            }
 
-    private void fixSnapshotDependencies(GradleDependencies gradleDependencies) {
-        var deps = gradleDependencies.getDependencies();
-        var snapshotIds = deps.keySet().stream()
-            .filter(id -> id.getVersion().endsWith("-SNAPSHOT"))
-            .collect(toCollection(LinkedHashSet::new));
+            if (depId.getGroup().equals("org.apache.groovy")
+                || depId.getGroup().equals("org.codehaus.groovy")
+            ) {
+                if (compareVersions(depId.getVersion(), "2.4.19") >= 0) {
+                    depInfo.setBom(depId.withName("groovy-bom"));
+                }
+                return;
+            }
 
-        deps.forEach((depId, depInfo) -> {
-            if (snapshotIds.contains(depId)) {
+            if (depId.getGroup().equals("org.jetbrains.kotlin")) {
+                if (compareVersions(depId.getVersion(), "1.3.20") >= 0) {
+                    depInfo.setBom(depId.withName("kotlin-bom"));
+                }
                 return;
             }
 
-            var pomProperties = getPomProperties(depId, depInfo);
-            if (pomProperties == null) {
+            if (depId.getGroup().equals("org.slf4j")) {
+                if (compareVersions(depId.getVersion(), "2.0.8") >= 0) {
+                    depInfo.setBom(depId.withName("slf4j-bom"));
+                }
                 return;
             }
 
-            var version = pomProperties.getProperty("version");
-            if (version != null && version.endsWith("-SNAPSHOT")) {
-                snapshotIds.add(depId);
+            if (depId.getGroup().equals("org.ow2.asm")) {
+                if (compareVersions(depId.getVersion(), "9.3") >= 0) {
+                    depInfo.setBom(depId.withName("asm-bom"));
+                }
+                return;
             }
-        });
+        }
 
-        snapshotIds.forEach(snapshotId -> {
-            snapshotId.setVersion(
-                substringBefore(snapshotId.getVersion(), "-SNAPSHOT")
-            );
 
-            snapshotId.setGroup(GRADLE_API_PUBLISH_GROUP);
-            deps.get(snapshotId).setSyntheticGroup(true);
-        });
-    }
+        private void fixSnapshotDependencies(GradleDependencies gradleDependencies) {
+            var deps = gradleDependencies.getDependencies();
+            var snapshotIds = deps.keySet().stream()
+                .filter(id -> id.getVersion().endsWith("-SNAPSHOT"))
+                .collect(toCollection(LinkedHashSet::new));
+
+            deps.forEach((depId, depInfo) -> {
+                if (snapshotIds.contains(depId)) {
+                    return;
+                }
+
+                var pomProperties = getPomProperties(depId, depInfo);
+                if (pomProperties == null) {
+                    return;
+                }
+
+                var version = pomProperties.getProperty("version");
+                if (version != null && version.endsWith("-SNAPSHOT")) {
+                    snapshotIds.add(depId);
+                }
+            });
+
+            snapshotIds.forEach(snapshotId -> {
+                snapshotId.setVersion(
+                    substringBefore(snapshotId.getVersion(), "-SNAPSHOT")
+                );
+
+                snapshotId.setGroup(GRADLE_API_PUBLISH_GROUP);
+                deps.get(snapshotId).setSyntheticGroup(true);
+            });
+        }
 
 
-    @Nullable
-    @SneakyThrows
-    private Properties getPomProperties(GradleDependencyId depId, GradleDependencyInfo depInfo) {
-        var depFile = Optional.ofNullable(depInfo.getPath())
-            .map(this::getProjectRelativeFile)
-            .orElse(null);
-        if (depFile == null) {
-            return null;
-        }
+        @Nullable
+        @SneakyThrows
+        private Properties getPomProperties(GradleDependencyId depId, GradleDependencyInfo depInfo) {
+            var depFile = Optional.ofNullable(depInfo.getPath())
+                .map(task::getProjectRelativeFile)
+                .orElse(null);
+            if (depFile == null) {
+                return null;
+            }
 
-        var pomPropertiesEntryName = getZipFileEntryNames(depFile).stream()
-            .filter(name -> name.startsWith("META-INF/maven/")
-                && name.endsWith("/" + depId.getName() + "/pom.properties")
-            )
-            .findFirst()
-            .orElse(null);
-        if (pomPropertiesEntryName != null) {
-            var properties = new Properties();
-            try (
-                var zipFile = new ZipFile(depFile, UTF_8);
-                var in = zipFile.getInputStream(zipFile.getEntry(pomPropertiesEntryName))
-            ) {
-                properties.load(in);
+            var pomPropertiesEntryName = getZipFileEntryNames(depFile).startingWith("META-INF/maven/").stream()
+                .filter(name -> name.endsWith("/" + depId.getName() + "/pom.properties"))
+                .findFirst()
+                .orElse(null);
+            if (pomPropertiesEntryName != null) {
+                var properties = new Properties();
+                try (
+                    var zipFile = task.getZipFilesService().get().open(depFile);
+                    var in = zipFile.getZipFile().getInputStream(zipFile.getZipFile().getEntry(pomPropertiesEntryName))
+                ) {
+                    properties.load(in);
+                }
+
+                return properties;
             }
 
-            return properties;
+            return null;
         }
 
-        return null;
     }
 
 }
@@ -49,12 +49,14 @@ public abstract class CreateSimpleGradleDependencies extends AbstractProducingDe
 
     @Override
     protected GradleDependencies createGradleDependencies() throws Exception {
-        var rawDeps = Json.JSON_READER.readValue(
+        var rawDeps = Json.readValue(
             getRawGradleDependenciesFile().get().getAsFile(),
             GradleRawDependencies.class
         );
+        return createSimpleGradleDependencies(rawDeps);
+    }
 
-
+    static GradleDependencies createSimpleGradleDependencies(GradleRawDependencies rawDeps) {
         var result = new GradleDependencies(
             rawDeps.getGradleVersion(),
             rawDeps.getSourcesArchiveFile()
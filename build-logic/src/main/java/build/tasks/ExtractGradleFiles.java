@@ -1,23 +1,43 @@
 package build.tasks;
 
+import static build.utils.BlobStore.materialize;
+import static build.utils.GradleDistributions.extractGradleDistributionArchive;
+import static build.utils.GradleDistributions.findGradleDistributionArchive;
+import static build.utils.GradleDistributions.findGradleInstallation;
 import static build.utils.Utils.createCleanDirectory;
 import static build.utils.Utils.createGradleContent;
+import static build.utils.Utils.mapInParallel;
 import static java.lang.String.format;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.deleteIfExists;
 import static java.nio.file.Files.newOutputStream;
 import static java.nio.file.Files.writeString;
+import static java.util.function.Predicate.not;
 
+import build.dto.GradleRawDependencies;
+import build.utils.BlobStore;
+import build.utils.GradleBuildsService;
+import build.utils.GradleDistributions;
+import build.utils.Json;
 import build.utils.Utils;
 import build.utils.WithGradleVersion;
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.File;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.OutputFile;
@@ -28,16 +48,21 @@ import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.internal.consumer.CancellationTokenInternal;
 import org.gradle.util.GradleVersion;
+import org.jspecify.annotations.Nullable;
 
 /**
  * A Gradle task that extracts Gradle distribution components for a specific Gradle version.
  *
  * <p>This task:
  * <ul>
- *   <li>Downloads and uses the official Gradle distribution ZIP for the specified version.
+ *   <li>Uses a local Gradle distribution for the specified version, if there is one
+ *   (see {@link GradleDistributions}). Otherwise, downloads the official Gradle distribution ZIP.
  *   <li>Creates a temporary Gradle project that runs a custom build to extract key Gradle files.
  *   <li>Archives Gradle source directories into a single {@code sources.zip} file.
- *   <li>Copies Gradle library JARs from the distribution to {@code lib/}.
+ *   If a local distribution archive is found, the archive entries are copied as-is, without the nested build.
+ *   <li>Materializes Gradle library JARs from the distribution in {@code lib/}, and generated JARs
+ *   from {@code ~/.gradle/caches} next to it. Every file is put into the {@link BlobStore} and hard-linked
+ *   from there, so files that are the same in many Gradle versions take disk space only once.
  *   <li>Resolves and records Gradle-provided dependencies such as {@link DependencyHandler#gradleApi()},
  *   {@link DependencyHandler#localGroovy()}, {@link DependencyHandler#gradleTestKit()},
  *   and {@code gradleKotlinDsl()} (where applicable).
@@ -87,6 +112,54 @@ public abstract class ExtractGradleFiles
     }
 
 
+    /**
+     * The maximum number of files materialized from the {@link BlobStore} concurrently.
+     * The output doesn't depend on this value.
+     */
+    @Internal
+    public abstract Property<Integer> getMaterializationParallelism();
+
+    {
+        getMaterializationParallelism().convention(Runtime.getRuntime().availableProcessors());
+    }
+
+
+    /**
+     * Unpacked Gradle {@code -all} distributions. The one of {@link #getGradleVersion()} is used, if present.
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getGradleInstallationDirectories();
+
+    /**
+     * A directory with {@code gradle-<version>-all.zip} distribution archives,
+     * and optionally {@code gradle-<version>-all.zip.sha256} checksum files.
+     */
+    @Internal
+    public abstract DirectoryProperty getGradleDistributionsMirrorDirectory();
+
+    /**
+     * The {@code wrapper/dists} directory of the Gradle user home. Distributions that were already downloaded
+     * by the Gradle wrapper or the Tooling API are taken from it.
+     */
+    @Internal
+    public abstract DirectoryProperty getWrapperDistributionsDirectory();
+
+    /**
+     * The maximum number of local distribution archives verified concurrently.
+     * The output doesn't depend on this value.
+     */
+    @Internal
+    public abstract Property<Integer> getDistributionVerificationParallelism();
+
+    {
+        getDistributionVerificationParallelism().convention(Runtime.getRuntime().availableProcessors());
+    }
+
+
+    @ServiceReference(GradleBuildsService.NAME)
+    public abstract Property<GradleBuildsService> getGradleBuildsService();
+
+
     @OutputDirectory
     public abstract DirectoryProperty getGradleFilesDirectory();
 
@@ -106,6 +179,9 @@ public abstract class ExtractGradleFiles
         onlyIf(__ -> {
             getGradleVersion().finalizeValueOnRead();
             getJavaLauncher().finalizeValueOnRead();
+            getGradleInstallationDirectories().finalizeValueOnRead();
+            getGradleDistributionsMirrorDirectory().finalizeValueOnRead();
+            getWrapperDistributionsDirectory().finalizeValueOnRead();
             getGradleFilesDirectory().finalizeValueOnRead();
             getGradleRawDependenciesJsonFile().finalizeValueOnRead();
             return true;
@@ -123,10 +199,27 @@ public abstract class ExtractGradleFiles
 
         var tempDir = createCleanDirectory(getTemporaryDir().toPath());
         var tempProjectDir = createCleanDirectory(tempDir.resolve("project"));
+        var filesToMaterializeFile = tempDir.resolve("files-to-materialize.json");
 
         var gradleVersionString = getGradleVersion().get();
         var baseGradleVersion = GradleVersion.version(gradleVersionString).getBaseVersion();
 
+        var wrapperDistsDir = getWrapperDistributionsDirectory().getAsFile().map(File::toPath).getOrNull();
+        var installationDir = findGradleInstallation(
+            gradleVersionString,
+            getGradleInstallationDirectories().getFiles().stream().map(File::toPath).toList(),
+            wrapperDistsDir
+        );
+        var distributionArchive = findGradleDistributionArchive(
+            gradleVersionString,
+            getGradleDistributionsMirrorDirectory().getAsFile().map(File::toPath).getOrNull(),
+            wrapperDistsDir,
+            getDistributionVerificationParallelism().get(),
+            getBuildCancellationToken()
+        );
+        // lib/ and src/ are extracted from a local archive directly, without the nested build
+        var nativeExtraction = distributionArchive != null;
+
         writeString(tempProjectDir.resolve("settings.gradle"), createGradleContent(
             """
                 rootProject.name = '#ROOT_PROJECT_NAME#'
@@ -142,12 +235,14 @@ public abstract class ExtractGradleFiles
                 import java.nio.charset.StandardCharsets
                 import java.nio.file.Files
                 import java.nio.file.Paths
-                import java.nio.file.StandardCopyOption
                 import org.gradle.util.GradleVersion
 
                 def currentBaseGradleVersion = GradleVersion.current().baseVersion
                 def buildProjectDir = file('#BUILD_PROJECT_DIR#')
 
+                // If `true`, `lib/` and `sources.zip` are created by the outer build
+                def nativeExtraction = #NATIVE_EXTRACTION#
+
                 // ~/.gradle/wrapper/dists/gradle-<version>-all/<hash>/gradle-<version>
                 def gradleHomeDir = gradle.gradleHomeDir?.canonicalFile
                 assert gradleHomeDir != null
@@ -185,14 +280,22 @@ public abstract class ExtractGradleFiles
                     }
                     includeEmptyDirs = false
                     duplicatesStrategy = 'EXCLUDE'
+
+                    enabled = !nativeExtraction
                 }
 
 
-                // A task that copies all files from `gradleLibDir` info the build directory
-                tasks.#TASK_CREATION_METHOD#('copyLibs', Copy) {
-                    from(gradleLibDir)
-                    into('#GRADLE_FILES_DIR#/lib')
-                    include('**/*.jar')
+                // Files to be materialized in the build directory by the outer build: destination path -> source path
+                Map<String, String> filesToMaterialize = [:]
+
+                // All JAR files from `gradleLibDir` are materialized in the build directory
+                if (!nativeExtraction) {
+                    gradleLibDir.eachFileRecurse(groovy.io.FileType.FILES) { file ->
+                        if (file.name.endsWith('.jar')) {
+                            def relativePath = gradleLibDir.toPath().relativize(file.toPath()).toString()
+                            filesToMaterialize[new File('#GRADLE_FILES_DIR#/lib', relativePath).path] = file.path
+                        }
+                    }
                 }
 
 
@@ -217,7 +320,6 @@ public abstract class ExtractGradleFiles
 
                 tasks.#TASK_CREATION_METHOD#('extract') {
                     dependsOn('archiveSources')
-                    dependsOn('copyLibs')
 
                     doLast {
                         def result = [
@@ -234,14 +336,13 @@ public abstract class ExtractGradleFiles
                                     def relativePath = gradleLibDir.toPath().relativize(file.toPath()).toString().replace("\\\\", "/")
                                     def destFile = new File('#GRADLE_FILES_DIR#/lib', relativePath)
                                     destFiles.add(buildProjectDir.toPath().relativize(destFile.toPath()).toString().replace("\\\\", "/"))
-                                    assert destFile.isFile() // already copied by 'copyLibs' task
+                                    assert nativeExtraction || filesToMaterialize.containsKey(destFile.path)
                                 } else {
                                     // `file` is generated by Gradle and is somewhere in ~/.gradle/caches
                                     def destFile = new File('#GRADLE_FILES_DIR#', file.name)
                                     destFiles.add(buildProjectDir.toPath().relativize(destFile.toPath()).toString().replace("\\\\", "/"))
-                                    // copy `file` info the build directory
-                                    destFile.parentFile.mkdirs()
-                                    Files.copy(file.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING)
+                                    // materialize `file` in the build directory
+                                    filesToMaterialize[destFile.path] = file.path
                                 }
                             }
                         }
@@ -250,6 +351,10 @@ public abstract class ExtractGradleFiles
                         def outputFile = Paths.get('#OUTPUT_FILE#')
                         Files.createDirectories(outputFile.parent)
                         Files.write(outputFile, resultJson.getBytes(StandardCharsets.UTF_8))
+
+                        def filesToMaterializeJson = JsonOutput.prettyPrint(JsonOutput.toJson(filesToMaterialize))
+                        def filesToMaterializeFile = Paths.get('#FILES_TO_MATERIALIZE_FILE#')
+                        Files.write(filesToMaterializeFile, filesToMaterializeJson.getBytes(StandardCharsets.UTF_8))
                     }
                 }
                 """,
@@ -257,7 +362,9 @@ public abstract class ExtractGradleFiles
                 "TASK_CREATION_METHOD", baseGradleVersion.compareTo(GradleVersion.version("9.0")) < 0
                     ? "create"
                     : "register",
+                "NATIVE_EXTRACTION", nativeExtraction,
                 "OUTPUT_FILE", outputFile,
+                "FILES_TO_MATERIALIZE_FILE", filesToMaterializeFile,
                 "GRADLE_FILES_DIR", gradleFilesDirectory,
                 "BUILD_PROJECT_DIR", getLayout().getProjectDirectory()
             )
@@ -274,14 +381,23 @@ public abstract class ExtractGradleFiles
             gradleProperties.store(out, null);
         }
 
+        var connector = GradleConnector.newConnector()
+            .forProjectDirectory(tempProjectDir.toFile());
+        if (installationDir != null) {
+            getLogger().lifecycle("Using Gradle installation {}", installationDir);
+            connector.useInstallation(installationDir.toFile());
+        } else if (distributionArchive != null) {
+            getLogger().lifecycle("Using Gradle distribution archive {}", distributionArchive);
+            connector.useDistribution(distributionArchive.toUri());
+        } else {
+            connector.useDistribution(URI.create(format(
+                "https://services.gradle.org/distributions/gradle-%s-all.zip",
+                gradleVersionString
+            )));
+        }
         try (
-            var connection = GradleConnector.newConnector()
-                .forProjectDirectory(tempProjectDir.toFile())
-                .useDistribution(URI.create(format(
-                    "https://services.gradle.org/distributions/gradle-%s-all.zip",
-                    gradleVersionString
-                )))
-                .connect()
+            var _ = getGradleBuildsService().get().acquire(getBuildCancellationToken());
+            var connection = connector.connect()
         ) {
             connection.newBuild()
                 .setJavaHome(getJavaLauncher().get().getMetadata().getInstallationPath().getAsFile())
@@ -296,6 +412,73 @@ public abstract class ExtractGradleFiles
                 .forTasks("extract")
                 .run();
         }
+
+        Map<String, String> filesToMaterialize = Json.JSON_READER
+            .forType(new TypeReference<Map<String, String>>() { })
+            .readValue(filesToMaterializeFile.toFile());
+        if (distributionArchive != null) {
+            getLogger().lifecycle("Extracting lib/ and sources from {}", distributionArchive);
+            extractGradleDistributionArchive(
+                getZipFilesService().get(),
+                distributionArchive,
+                gradleVersionString,
+                gradleFilesDirectory.resolve("lib"),
+                gradleFilesDirectory.resolve("sources.zip"),
+                getMaterializationParallelism().get(),
+                getBuildCancellationToken()
+            );
+        }
+        mapInParallel(
+            filesToMaterialize.entrySet(),
+            getMaterializationParallelism().get(),
+            getName(),
+            getBuildCancellationToken(),
+            entry -> {
+                materialize(Paths.get(entry.getValue()), Paths.get(entry.getKey()));
+                return entry;
+            }
+        );
+
+        var projectDir = getLayout().getProjectDirectory().getAsFile().toPath();
+        var rawDependencies = Json.readValue(outputFile.toFile(), GradleRawDependencies.class);
+        assertLibFilesExist(rawDependencies, projectDir, gradleFilesDirectory, installationDir, distributionArchive);
+    }
+
+    /**
+     * Checks that all {@code lib/} files referenced by {@code rawDependencies} have been extracted.
+     *
+     * <p>If both a Gradle installation and a distribution archive are found, the nested build runs with the
+     * installation, but {@code lib/} is extracted from the archive. If they don't match, the dependency metadata
+     * would reference files that don't exist.
+     */
+    private static void assertLibFilesExist(
+        GradleRawDependencies rawDependencies,
+        Path projectDir,
+        Path gradleFilesDirectory,
+        @Nullable Path installationDir,
+        @Nullable Path distributionArchive
+    ) {
+        var libDir = gradleFilesDirectory.resolve("lib");
+        var missingFiles = rawDependencies.getDependencies().values().stream()
+            .flatMap(List::stream)
+            .distinct()
+            .map(projectDir::resolve)
+            .map(Path::normalize)
+            .filter(path -> path.startsWith(libDir))
+            .filter(not(Files::isRegularFile))
+            .map(path -> gradleFilesDirectory.relativize(path).toString().replace('\\', '/'))
+            .toList();
+        if (!missingFiles.isEmpty()) {
+            var message = new StringBuilder()
+                .append("Gradle ").append(rawDependencies.getGradleVersion())
+                .append(" files are missing in ").append(gradleFilesDirectory).append(':');
+            missingFiles.forEach(file -> message.append("\n  ").append(file));
+            if (installationDir != null && distributionArchive != null) {
+                message.append("\nThe Gradle installation ").append(installationDir)
+                    .append(" doesn't match the distribution archive ").append(distributionArchive);
+            }
+            throw new IllegalStateException(message.toString());
+        }
     }
 
     private class GradleConnectorCancellationToken implements CancellationToken, CancellationTokenInternal {
@@ -0,0 +1,16 @@
+package build.tasks;
+
+import build.dto.GradleDependencies;
+
+/**
+ * A single stage of {@link GradleDependencies} processing.
+ *
+ * <p>A mapper is bound to the task it runs in, and uses the task's services and caches. So, the stages can be executed
+ * either by their own tasks, or back to back by {@link ProcessGradleDependencies}.
+ */
+@FunctionalInterface
+interface GradleDependenciesMapper {
+
+    GradleDependencies map(GradleDependencies gradleDependencies) throws Exception;
+
+}
@@ -0,0 +1,112 @@
+package build.tasks;
+
+import static build.tasks.CreateSimpleGradleDependencies.createSimpleGradleDependencies;
+import static java.nio.file.Files.createDirectories;
+import static org.gradle.api.tasks.PathSensitivity.RELATIVE;
+
+import build.dto.GradleDependencies;
+import build.dto.GradleRawDependencies;
+import build.utils.Json;
+import java.util.LinkedHashMap;
+import org.gradle.api.BuildCancelledException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+
+/**
+ * Runs all {@link GradleDependencies} processing stages back to back, on one in-memory graph.
+ *
+ * <p>Produces the same output as the chain of {@link CreateSimpleGradleDependencies},
+ * {@link ProcessGradleModuleClasspath}, {@link ProcessModuleRegistry}, and {@link CompleteDependencies} tasks,
+ * but doesn't serialize the graph to JSON between the stages. All the stages share the task's
+ * ZIP files and Gradle files index.
+ *
+ * <p>Processing logic:
+ * <ul>
+ *   <li>Creates {@link GradleDependencies} from the raw dependency metadata
+ *   <li>Runs every stage, cleaning up the graph and interning dependency IDs after each one,
+ *     exactly as the JSON serialization and deserialization between separate tasks do
+ *   <li>Writes the graph after every stage to {@link #getStagesDebugDirectory()}, if it's set
+ * </ul>
+ *
+ * <p>Inputs:
+ * <ul>
+ *   <li>{@link #getRawGradleDependenciesFile()} – raw dependency metadata in JSON format
+ *   <li>{@link #getGradleFilesDirectory()} – directory with extracted Gradle files
+ * </ul>
+ *
+ * <p>Outputs:
+ * <ul>
+ *   <li>{@link #getGradleDependenciesJsonFile()} – file with {@link GradleDependencies}
+ *   <li>{@link #getStagesDebugDirectory()} – optional directory with the graph after every stage
+ * </ul>
+ */
+@CacheableTask
+public abstract class ProcessGradleDependencies extends AbstractProducingDependenciesInfoTask {
+
+    @InputFile
+    @PathSensitive(RELATIVE)
+    public abstract RegularFileProperty getRawGradleDependenciesFile();
+
+    @OutputDirectory
+    @Optional
+    public abstract DirectoryProperty getStagesDebugDirectory();
+
+    /**
+     * The maximum number of threads used by every stage.
+     * The output doesn't depend on this value.
+     */
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
+    {
+        getParallelism().convention(Runtime.getRuntime().availableProcessors());
+    }
+
+
+    @Override
+    protected GradleDependencies createGradleDependencies() throws Exception {
+        var rawDeps = Json.readValue(
+            getRawGradleDependenciesFile().get().getAsFile(),
+            GradleRawDependencies.class
+        );
+
+        var parallelism = getParallelism().get();
+        var stages = new LinkedHashMap<String, GradleDependenciesMapper>();
+        stages.put("processGradleModuleClasspath", new ProcessGradleModuleClasspath.Mapper(this, parallelism));
+        stages.put("processModuleRegistry", new ProcessModuleRegistry.Mapper(this, parallelism));
+        stages.put("completeDependencies", new CompleteDependencies.Mapper(this));
+
+        var result = createSimpleGradleDependencies(rawDeps);
+        completeStage("simpleGradleDependencies", result);
+        for (var stage : stages.entrySet()) {
+            if (getBuildCancellationToken().isCancellationRequested()) {
+                throw new BuildCancelledException();
+            }
+
+            result = stage.getValue().map(result);
+            completeStage(stage.getKey(), result);
+        }
+        return result;
+    }
+
+    private void completeStage(String stageName, GradleDependencies gradleDependencies) throws Exception {
+        var debugDir = getStagesDebugDirectory().getAsFile().getOrNull();
+        if (debugDir != null) {
+            createDirectories(debugDir.toPath());
+            // serialization cleans up the graph:
+            Json.JSON_WRITER.writeValue(debugDir.toPath().resolve(stageName + ".json").toFile(), gradleDependencies);
+        } else {
+            gradleDependencies.cleanup();
+        }
+
+        gradleDependencies.internGradleDependencyIds();
+    }
+
+}
@@ -1,16 +1,21 @@
 package build.tasks;
 
 import static build.utils.GradleModuleClasspathUtils.getGradleClasspathModules;
-import static build.utils.ZipUtils.getZipFileEntryNames;
+import static build.utils.JarOverlapMatrix.createJarPairsOverlapMatrix;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.nio.file.Files.isRegularFile;
 
 import build.dto.GradleDependencies;
 import build.dto.GradleDependencyInfo;
+import build.utils.JarOverlapMatrix.JarPair;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.regex.Pattern;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Internal;
 
 /**
  * Analyzes Gradle JAR files and enriches the dependency graph with module-level classpath links.
@@ -28,6 +33,8 @@ import org.gradle.api.tasks.CacheableTask;
  *   <li>Skips known Gradle runtime libraries like {@code groovy-*}, {@code kotlin-*},
  *   {@code native-platform-*}, {@code file-events-*}, and {@code jansi-*}
  *   <li>Registers any new module dependencies not yet present in {@link GradleDependencies}
+ *   <li>Checks whether linked JARs share entries with a {@link build.utils.JarOverlapMatrix} built once
+ *     for all the links, using up to {@link #getOverlapParallelism()} threads
  * </ul>
  *
  * <p>Inputs:
@@ -46,77 +53,127 @@ public abstract class ProcessGradleModuleClasspath extends AbstractMappingDepend
 
     private static final Pattern LIB_FILE_PATTERN = Pattern.compile("\\.(so|dll|[^.]*lib)$");
 
+    /**
+     * Maximum number of threads used to build the JAR overlap matrix.
+     * The output doesn't depend on this value.
+     */
+    @Internal
+    public abstract Property<Integer> getOverlapParallelism();
+
+    {
+        getOverlapParallelism().convention(Runtime.getRuntime().availableProcessors());
+    }
+
+
     @Override
     protected GradleDependencies mapGradleDependencies(GradleDependencies gradleDependencies) {
-        var gradleFilesDir = getGradleFilesDirectory().getAsFile().get().toPath();
+        return new Mapper(this, getOverlapParallelism().get()).map(gradleDependencies);
+    }
 
-        for (var depInfo : List.copyOf(gradleDependencies.getDependencies().values())) {
-            var path = depInfo.getPath();
-            if (path == null) {
-                continue;
-            }
+    static class Mapper implements GradleDependenciesMapper {
 
-            var file = getProjectRelativeFile(path);
-            var isGradleFile = file.getName().startsWith("gradle-");
-            if (!isGradleFile) {
-                continue;
-            }
+        private final AbstractGradleFilesConsumerTask task;
+        private final int parallelism;
+
+        Mapper(AbstractGradleFilesConsumerTask task, int parallelism) {
+            this.task = task;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public GradleDependencies map(GradleDependencies gradleDependencies) {
+            var gradleFilesDir = task.getGradleFilesDirectory().getAsFile().get().toPath();
 
-            var essentialEntryNames = getZipFileEntryNames(file).stream()
-                .filter(it ->
-                    (it.endsWith(".class") && !it.equals("module-info.class") && !it.endsWith("/module-info.class"))
-                        || LIB_FILE_PATTERN.matcher(it).find()
-                )
-                .collect(toImmutableSet());
-
-            var modules = getGradleClasspathModules(file);
-            var moduleDepPaths = modules.values().stream()
-                .flatMap(info -> info.scopePaths().values().stream())
-                .flatMap(Collection::stream)
-                .filter(it -> it.endsWith(".jar"))
-                .collect(toImmutableSet());
-            for (var moduleDepPath : moduleDepPaths) {
-                var moduleDepPathPrefix = '/' + moduleDepPath;
-                if (moduleDepPathPrefix.startsWith("/gradle-")
-                    || moduleDepPathPrefix.startsWith("/groovy-")
-                    || moduleDepPathPrefix.startsWith("/kotlin-")
-                    || moduleDepPathPrefix.startsWith("/native-platform-")
-                    || moduleDepPathPrefix.startsWith("/file-events-")
-                    || moduleDepPathPrefix.startsWith("/jansi-")
-                ) {
+            var links = new ArrayList<ModuleClasspathLink>();
+            for (var depInfo : List.copyOf(gradleDependencies.getDependencies().values())) {
+                var path = depInfo.getPath();
+                if (path == null) {
                     continue;
                 }
 
-                var baseDir = file.toPath().getParent();
-                if (file.getParentFile().toPath().equals(gradleFilesDir)) {
-                    baseDir = baseDir.resolve("lib");
-                }
-                var moduleDepFile = baseDir.resolve(moduleDepPath);
-                if (!isRegularFile(moduleDepFile)) {
+                var file = task.getProjectRelativeFile(path);
+                var isGradleFile = file.getName().startsWith("gradle-");
+                if (!isGradleFile) {
                     continue;
                 }
 
-                var moduleFileEntryNames = getZipFileEntryNames(moduleDepFile.toFile());
-                var moduleEntriesIncludedIntoFile = moduleFileEntryNames.stream()
-                    .filter(essentialEntryNames::contains)
-                    .toList();
-                if (moduleEntriesIncludedIntoFile.isEmpty()) {
+                var modules = getGradleClasspathModules(file);
+                var moduleDepPaths = modules.values().stream()
+                    .flatMap(info -> info.scopePaths().values().stream())
+                    .flatMap(Collection::stream)
+                    .filter(it -> it.endsWith(".jar"))
+                    .collect(toImmutableSet());
+                for (var moduleDepPath : moduleDepPaths) {
+                    var moduleDepPathPrefix = '/' + moduleDepPath;
+                    if (moduleDepPathPrefix.startsWith("/gradle-")
+                        || moduleDepPathPrefix.startsWith("/groovy-")
+                        || moduleDepPathPrefix.startsWith("/kotlin-")
+                        || moduleDepPathPrefix.startsWith("/native-platform-")
+                        || moduleDepPathPrefix.startsWith("/file-events-")
+                        || moduleDepPathPrefix.startsWith("/jansi-")
+                    ) {
+                        continue;
+                    }
+
+                    var baseDir = file.toPath().getParent();
+                    if (file.getParentFile().toPath().equals(gradleFilesDir)) {
+                        baseDir = baseDir.resolve("lib");
+                    }
+                    var moduleDepFile = baseDir.resolve(moduleDepPath);
+                    if (!isRegularFile(moduleDepFile)) {
+                        continue;
+                    }
+
+                    links.add(new ModuleClasspathLink(depInfo, file, moduleDepFile.toFile()));
+                }
+            }
+
+            var overlapMatrix = createJarPairsOverlapMatrix(
+                links.stream()
+                    .map(link -> new JarPair(link.file(), link.moduleDepFile()))
+                    .toList(),
+                ProcessGradleModuleClasspath::isEssentialEntry,
+                parallelism,
+                task.getBuildCancellationToken()
+            );
+
+            for (var link : links) {
+                if (!overlapMatrix.overlaps(link.file(), link.moduleDepFile())) {
                     continue;
                 }
 
+                var moduleDepFile = link.moduleDepFile().toPath();
                 var moduleDepId = gradleDependencies.getDependencyIdByPathOrName(moduleDepFile);
-                depInfo.getDependencies().add(moduleDepId);
+                link.depInfo().getDependencies().add(moduleDepId);
 
                 if (!gradleDependencies.getDependencies().containsKey(moduleDepId)) {
                     var moduleDepInfo = new GradleDependencyInfo();
-                    moduleDepInfo.setPath(getProjectFileRelativePath(moduleDepFile));
+                    moduleDepInfo.setPath(task.getProjectFileRelativePath(moduleDepFile));
 
                     gradleDependencies.getDependencies().put(moduleDepId, moduleDepInfo);
                 }
             }
+
+            gradleDependencies.invalidateGraph();
+            return gradleDependencies;
         }
 
-        return gradleDependencies;
+    }
+
+    /**
+     * A module JAR file referenced by a Gradle JAR file classpath metadata.
+     * It's linked as a dependency only if the Gradle JAR file includes some of its essential entries.
+     */
+    private record ModuleClasspathLink(
+        GradleDependencyInfo depInfo,
+        File file,
+        File moduleDepFile
+    ) {
+    }
+
+    private static boolean isEssentialEntry(String name) {
+        return (name.endsWith(".class") && !name.equals("module-info.class") && !name.endsWith("/module-info.class"))
+            || LIB_FILE_PATTERN.matcher(name).find();
     }
 
 }
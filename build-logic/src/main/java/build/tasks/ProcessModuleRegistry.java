@@ -1,34 +1,44 @@
 package build.tasks;
 
 import static build.utils.AsmUtils.LATEST_ASM_API;
+import static build.utils.AsmUtils.hasMethodReference;
+import static build.utils.Utils.mapInParallel;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
-import static java.util.function.Predicate.not;
 import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
 
 import build.dto.GradleDependencies;
+import build.dto.GradleDependencyId;
 import build.dto.GradleDependencyInfo;
 import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.function.BiConsumer;
-import java.util.function.Consumer;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.stream.IntStream;
+import java.util.zip.ZipException;
+import javax.annotation.WillNotClose;
+import lombok.SneakyThrows;
 import org.gradle.api.BuildCancelledException;
 import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Internal;
 import org.jspecify.annotations.Nullable;
-import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.TypePath;
-import org.objectweb.asm.tree.LdcInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Scans Gradle module JARs to discover runtime dependencies declared via {@code ModuleRegistry} calls.
@@ -41,10 +51,13 @@ import org.objectweb.asm.tree.MethodNode;
  * <p>Processing logic:
  * <ul>
  *   <li>Iterates through all Gradle JARs whose names start with {@code gradle-}
- *   <li>For each class file, inspects method calls referencing {@link ModuleRegistry}
+ *   <li>For each class file, inspects method calls referencing {@link ModuleRegistry};
+ *     classes without such method references in their constant pool are skipped without being parsed
  *   <li>Detects argument constants representing module names and resolves corresponding module JARs
  *   <li>Links discovered modules as sub-dependencies within the existing dependency graph
  *   <li>Recursively processes new modules until all reachable modules are analyzed
+ *   <li>Scans up to {@link #getScanParallelism()} chunks of class files concurrently,
+ *     processing the found references in the same order as a sequential scan would
  *   <li>Skips modules not explicitly whitelisted in {@link #ALLOWER_MODULES}
  * </ul>
  *
@@ -66,99 +79,274 @@ public abstract class ProcessModuleRegistry extends AbstractMappingDependenciesI
         "gradle-runtime-api-info"
     );
 
+    private static final String MODULE_REGISTRY_PREFIX = "org/gradle/";
+    private static final String MODULE_REGISTRY_SUFFIX = "/ModuleRegistry";
+
+    /**
+     * The maximum number of class chunks scanned concurrently.
+     * The output doesn't depend on this value.
+     */
+    @Internal
+    public abstract Property<Integer> getScanParallelism();
+
+    {
+        getScanParallelism().convention(Runtime.getRuntime().availableProcessors());
+    }
+
+
+    private static final int CLASS_ENTRIES_CHUNK_SIZE = 1_000;
+
     @Override
     protected GradleDependencies mapGradleDependencies(GradleDependencies gradleDependencies) throws Exception {
-        var queue = new ArrayDeque<>(gradleDependencies.getDependencies().entrySet());
-        while (true) {
-            if (getBuildCancellationToken().isCancellationRequested()) {
-                throw new BuildCancelledException();
-            }
+        return new Mapper(this, getScanParallelism().get()).map(gradleDependencies);
+    }
+
+    static class Mapper implements GradleDependenciesMapper {
+
+        private final AbstractGradleFilesConsumerTask task;
+        private final int parallelism;
 
-            var queueElement = queue.pollFirst();
-            if (queueElement == null) {
-                break;
+        Mapper(AbstractGradleFilesConsumerTask task, int parallelism) {
+            this.task = task;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public GradleDependencies map(GradleDependencies gradleDependencies) throws Exception {
+            var queue = new ArrayDeque<>(gradleDependencies.getDependencies().entrySet());
+            while (!queue.isEmpty()) {
+                if (task.getBuildCancellationToken().isCancellationRequested()) {
+                    throw new BuildCancelledException();
+                }
+
+                // All queued dependencies are scanned concurrently, and the found references are processed
+                // in the queue order, exactly as if the dependencies were scanned one by one:
+                var queueElements = new ArrayList<>(queue);
+                queue.clear();
+
+                var chunks = new ArrayList<ClassEntriesChunk>();
+                for (var elementIndex = 0; elementIndex < queueElements.size(); elementIndex++) {
+                    var path = queueElements.get(elementIndex).getValue().getPath();
+                    if (path == null) {
+                        continue;
+                    }
+
+                    var file = task.getProjectRelativeFile(path);
+                    var isGradleFile = file.getName().startsWith("gradle-");
+                    if (!isGradleFile) {
+                        continue;
+                    }
+
+                    int[] classEntryIndexes;
+                    try (var zipFile = task.getZipFilesService().get().open(file)) {
+                        var zipIndex = zipFile.getIndex();
+                        classEntryIndexes = IntStream.range(0, zipIndex.size())
+                            .filter(i -> !zipIndex.isDirectory(i))
+                            .filter(i -> zipIndex.getName(i).endsWith(".class"))
+                            .toArray();
+                    }
+                    for (var from = 0; from < classEntryIndexes.length; from += CLASS_ENTRIES_CHUNK_SIZE) {
+                        var to = Math.min(from + CLASS_ENTRIES_CHUNK_SIZE, classEntryIndexes.length);
+                        chunks.add(new ClassEntriesChunk(
+                            elementIndex,
+                            file,
+                            Arrays.copyOfRange(classEntryIndexes, from, to)
+                        ));
+                    }
+                }
+
+                var chunksReferences = mapInParallel(
+                    chunks,
+                    parallelism,
+                    task.getName(),
+                    task.getBuildCancellationToken(),
+                    this::scanClassEntriesChunk
+                );
+
+                for (var chunkIndex = 0; chunkIndex < chunks.size(); chunkIndex++) {
+                    var queueElement = queueElements.get(chunks.get(chunkIndex).queueElementIndex());
+                    for (var reference : chunksReferences.get(chunkIndex)) {
+                        processModuleReference(
+                            gradleDependencies,
+                            queueElement.getKey(),
+                            queueElement.getValue(),
+                            reference,
+                            queue
+                        );
+                    }
+                }
             }
 
-            var depId = queueElement.getKey();
-            var depInfo = queueElement.getValue();
+            gradleDependencies.invalidateGraph();
+            return gradleDependencies;
+        }
 
-            var path = depInfo.getPath();
-            if (path == null) {
-                continue;
+        private void processModuleReference(
+            GradleDependencies gradleDependencies,
+            GradleDependencyId depId,
+            GradleDependencyInfo depInfo,
+            ModuleReference reference,
+            Queue<Entry<GradleDependencyId, GradleDependencyInfo>> queue
+        ) {
+            var classInternalName = reference.classInternalName();
+            var moduleName = reference.moduleName();
+            if (moduleName.isEmpty()
+                || moduleName.equals(depId.getName())
+            ) {
+                return;
             }
 
-            var file = getProjectRelativeFile(path);
-            var isGradleFile = file.getName().startsWith("gradle-");
-            if (!isGradleFile) {
-                continue;
+            if (!ALLOWER_MODULES.contains(moduleName)) {
+                task.getLogger().info("{} references to `{}` Gradle module", classInternalName, moduleName);
+                return;
+            } else {
+                task.getLogger().lifecycle("{} references to `{}` Gradle module", classInternalName, moduleName);
             }
 
-            BiConsumer<String, String> moduleNameConsumer = (classInternalName, moduleName) -> {
-                if (moduleName.isEmpty()
-                    || moduleName.equals(depId.getName())
-                ) {
-                    return;
-                }
+            var moduleFile = task.getGradleModuleFile(moduleName);
+            if (moduleFile == null) {
+                throw new IllegalStateException(format(
+                    "%s: ModuleRegistry usage scan: module file not found for module: %s",
+                    classInternalName,
+                    moduleName
+                ));
+            }
 
-                if (!ALLOWER_MODULES.contains(moduleName)) {
-                    getLogger().info("{} references to `{}` Gradle module", classInternalName, moduleName);
-                    return;
-                } else {
-                    getLogger().lifecycle("{} references to `{}` Gradle module", classInternalName, moduleName);
-                }
+            var moduleDepId = gradleDependencies.getDependencyIdByPathOrName(moduleFile);
+            depInfo.getDependencies().add(moduleDepId);
 
-                var moduleFile = getGradleModuleFile(moduleName);
-                if (moduleFile == null) {
-                    throw new IllegalStateException(format(
-                        "%s: ModuleRegistry usage scan: module file not found for module: %s",
-                        classInternalName,
-                        moduleName
-                    ));
-                }
+            if (!gradleDependencies.getDependencies().containsKey(moduleDepId)) {
+                var moduleDepInfo = new GradleDependencyInfo();
+                moduleDepInfo.setPath(task.getProjectFileRelativePath(moduleFile));
 
-                var moduleDepId = gradleDependencies.getDependencyIdByPathOrName(moduleFile);
-                depInfo.getDependencies().add(moduleDepId);
+                gradleDependencies.getDependencies().put(moduleDepId, moduleDepInfo);
+                queue.add(new SimpleImmutableEntry<>(moduleDepId, moduleDepInfo));
+            }
+        }
 
-                if (!gradleDependencies.getDependencies().containsKey(moduleDepId)) {
-                    var moduleDepInfo = new GradleDependencyInfo();
-                    moduleDepInfo.setPath(getProjectFileRelativePath(moduleFile));
+        @SneakyThrows
+        private List<ModuleReference> scanClassEntriesChunk(ClassEntriesChunk chunk) {
+            var references = new ArrayList<ModuleReference>();
+            var classVisitor = new ModuleRegistryCallsClassVisitor((classInternalName, moduleName) ->
+                references.add(new ModuleReference(classInternalName, moduleName))
+            );
+            var classBytes = new ClassBytesBuffer();
 
-                    gradleDependencies.getDependencies().put(moduleDepId, moduleDepInfo);
-                    queue.addLast(new SimpleImmutableEntry<>(moduleDepId, moduleDepInfo));
-                }
-            };
-
-            try (var zipFile = new ZipFile(file, UTF_8)) {
-                var classEntries = zipFile.stream()
-                    .filter(not(ZipEntry::isDirectory))
-                    .filter(entry -> entry.getName().endsWith(".class"))
-                    .toList();
-                for (var classEntry : classEntries) {
-                    if (getBuildCancellationToken().isCancellationRequested()) {
+            try (var lease = task.getZipFilesService().get().open(chunk.file())) {
+                var zipIndex = lease.getIndex();
+                var zipFile = lease.getZipFile();
+                for (var entryIndex : chunk.entryIndexes()) {
+                    if (task.getBuildCancellationToken().isCancellationRequested()) {
                         throw new BuildCancelledException();
                     }
 
+                    var classEntry = zipFile.getEntry(zipIndex.getName(entryIndex));
+                    if (classEntry == null) {
+                        throw new ZipException(format(
+                            "Entry not found: %s!/%s",
+                            zipIndex.getFile(),
+                            zipIndex.getName(entryIndex)
+                        ));
+                    }
+
                     try (var in = zipFile.getInputStream(classEntry)) {
-                        var classVisitor = new ModuleRegistryCallsClassVisitor(moduleNameConsumer);
-                        var classReader = new ClassReader(in);
-                        classReader.accept(classVisitor, SKIP_DEBUG);
+                        classBytes.read(in, zipIndex.getSize(entryIndex));
                     }
+
+                    if (!hasMethodReference(
+                        classBytes.bytes,
+                        classBytes.length,
+                        MODULE_REGISTRY_PREFIX,
+                        MODULE_REGISTRY_SUFFIX
+                    )) {
+                        continue;
+                    }
+
+                    var classReader = new ClassReader(classBytes.bytes, 0, classBytes.length);
+                    classReader.accept(classVisitor, SKIP_DEBUG);
                 }
             }
+
+            return references;
         }
 
-        return gradleDependencies;
     }
 
-    private static class ModuleRegistryCallsMethodVisitor extends MethodNode {
+    /**
+     * Class entries of a Gradle JAR, scanned as a single unit of work.
+     */
+    private record ClassEntriesChunk(
+        int queueElementIndex,
+        File file,
+        int[] entryIndexes
+    ) {
+    }
+
+    private record ModuleReference(
+        String classInternalName,
+        String moduleName
+    ) {
+    }
+
+    /**
+     * A growable buffer for class file bytes, reused for all the scanned classes.
+     */
+    private static class ClassBytesBuffer {
+
+        private static final int INITIAL_SIZE = 64 * 1024;
 
-        private final Consumer<String> moduleNameConsumer;
+        private byte[] bytes = new byte[INITIAL_SIZE];
 
-        public ModuleRegistryCallsMethodVisitor(Consumer<String> moduleNameConsumer) {
+        private int length;
+
+        public void read(@WillNotClose InputStream in, long sizeHint) throws IOException {
+            if (sizeHint > bytes.length) {
+                bytes = new byte[toIntExact(sizeHint)];
+            }
+
+            length = 0;
+            while (true) {
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+
+                var read = in.read(bytes, length, bytes.length - length);
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+            }
+        }
+
+    }
+
+    /**
+     * Tracks the last {@code String} constant pushed by an {@code LDC} instruction,
+     * and reports it if the next instruction is a {@code ModuleRegistry} call.
+     *
+     * <p>Other method calls don't reset the tracked constant, the same way they've never been
+     * a part of the analyzed instruction list.
+     */
+    private static class ModuleRegistryCallsMethodVisitor extends MethodVisitor {
+
+        private final BiConsumer<String, String> moduleNameConsumer;
+
+        public ModuleRegistryCallsMethodVisitor(BiConsumer<String, String> moduleNameConsumer) {
             super(LATEST_ASM_API);
             this.moduleNameConsumer = moduleNameConsumer;
         }
 
+        @Nullable
+        private String classInternalName;
+
+        @Nullable
+        private String lastLdcString;
+
+        public void reset(String classInternalName) {
+            this.classInternalName = classInternalName;
+            this.lastLdcString = null;
+        }
+
         @Override
         public void visitMethodInsn(
             int opcodeAndSource,
@@ -167,7 +355,7 @@ public abstract class ProcessModuleRegistry extends AbstractMappingDependenciesI
             String descriptor,
             boolean isInterface
         ) {
-            if (!(owner.startsWith("org/gradle/") && owner.endsWith("/ModuleRegistry"))) {
+            if (!(owner.startsWith(MODULE_REGISTRY_PREFIX) && owner.endsWith(MODULE_REGISTRY_SUFFIX))) {
                 return;
             }
 
@@ -175,101 +363,103 @@ public abstract class ProcessModuleRegistry extends AbstractMappingDependenciesI
                 return;
             }
 
-            var prevInstruction = instructions.getLast();
-            if (prevInstruction instanceof LdcInsnNode ldc) {
-                if (ldc.cst instanceof String string) {
-                    moduleNameConsumer.accept(string);
-                }
+            var moduleName = lastLdcString;
+            lastLdcString = null;
+            if (moduleName != null) {
+                moduleNameConsumer.accept(requireNonNull(classInternalName), moduleName);
             }
+        }
 
-            super.visitMethodInsn(opcodeAndSource, owner, name, descriptor, isInterface);
+        @Override
+        public void visitLdcInsn(Object value) {
+            lastLdcString = value instanceof String string ? string : null;
         }
 
+        @Override
+        public void visitInsn(int opcode) {
+            lastLdcString = null;
+        }
 
         @Override
-        public void visitLineNumber(int line, Label start) {
-            // do nothing
+        public void visitIntInsn(int opcode, int operand) {
+            lastLdcString = null;
         }
 
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            lastLdcString = null;
+        }
 
         @Override
-        public void visitParameter(String name, int access) {
-            // do nothing
+        public void visitTypeInsn(int opcode, String type) {
+            lastLdcString = null;
         }
 
         @Override
-        @Nullable
-        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-            return null;
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            lastLdcString = null;
         }
 
         @Override
-        @Nullable
-        public AnnotationVisitor visitTypeAnnotation(
-            int typeRef,
-            TypePath typePath,
+        public void visitInvokeDynamicInsn(
+            String name,
             String descriptor,
-            boolean visible
+            Handle bootstrapMethodHandle,
+            Object... bootstrapMethodArguments
         ) {
-            return null;
+            lastLdcString = null;
         }
 
         @Override
-        public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
-            // do nothing
+        public void visitJumpInsn(int opcode, Label label) {
+            lastLdcString = null;
         }
 
         @Override
-        @Nullable
-        public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
-            return null;
+        public void visitLabel(Label label) {
+            lastLdcString = null;
         }
 
         @Override
-        @Nullable
-        public AnnotationVisitor visitInsnAnnotation(
-            int typeRef,
-            @Nullable TypePath typePath,
-            String descriptor,
-            boolean visible
-        ) {
-            return null;
+        public void visitIincInsn(int varIndex, int increment) {
+            lastLdcString = null;
         }
 
         @Override
-        @Nullable
-        public AnnotationVisitor visitLocalVariableAnnotation(
-            int typeRef,
-            @Nullable TypePath typePath,
-            @Nullable Label[] start,
-            @Nullable Label[] end,
-            int[] index,
-            String descriptor,
-            boolean visible
-        ) {
-            return null;
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            lastLdcString = null;
         }
 
         @Override
-        @Nullable
-        public AnnotationVisitor visitTryCatchAnnotation(
-            int typeRef,
-            @Nullable TypePath typePath,
-            @Nullable String descriptor,
-            boolean visible
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            lastLdcString = null;
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            lastLdcString = null;
+        }
+
+        @Override
+        public void visitFrame(
+            int type,
+            int numLocal,
+            @Nullable Object[] local,
+            int numStack,
+            @Nullable Object[] stack
         ) {
-            return null;
+            lastLdcString = null;
         }
 
     }
 
     private static class ModuleRegistryCallsClassVisitor extends ClassVisitor {
 
-        private final BiConsumer<String, String> moduleNameConsumer;
+        private final ModuleRegistryCallsMethodVisitor methodVisitor;
 
         public ModuleRegistryCallsClassVisitor(BiConsumer<String, String> moduleNameConsumer) {
             super(LATEST_ASM_API);
-            this.moduleNameConsumer = moduleNameConsumer;
+            this.methodVisitor = new ModuleRegistryCallsMethodVisitor(moduleNameConsumer);
         }
 
         @Nullable
@@ -296,9 +486,8 @@ public abstract class ProcessModuleRegistry extends AbstractMappingDependenciesI
             @Nullable String signature,
             @Nullable String[] exceptions
         ) {
-            return new ModuleRegistryCallsMethodVisitor(
-                moduleName -> moduleNameConsumer.accept(requireNonNull(classInternalName), moduleName)
-            );
+            methodVisitor.reset(requireNonNull(classInternalName));
+            return methodVisitor;
         }
 
     }
@@ -3,16 +3,24 @@ package build.tasks;
 import static build.Constants.GRADLE_API_BOM_NAME;
 import static build.Constants.GRADLE_API_PUBLISH_GROUP;
 import static build.utils.AsmUtils.getSourceFile;
+import static build.utils.HashUtils.hashBytes;
+import static build.utils.HashUtils.hashFile;
+import static build.utils.JarOverlapMatrix.createJarOverlapMatrix;
 import static build.utils.Utils.copyJarEntries;
 import static build.utils.Utils.createCleanDirectory;
+import static build.utils.Utils.mapInParallel;
 import static build.utils.Utils.substringBeforeLast;
+import static build.utils.ZipIndex.readZipIndex;
 import static build.utils.ZipUtils.getZipFileEntryNames;
+import static build.utils.ZipUtils.getZipFileEntryNamesStartingWith;
+import static build.utils.ZipUtils.getZipFileInfoCacheStats;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.lang.Boolean.TRUE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.deleteIfExists;
 import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.write;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.toCollection;
@@ -24,18 +32,27 @@ import build.dto.GradleDependencyId;
 import build.dto.GradleDependencyInfo;
 import build.dto.GradlePublishedDependencies;
 import build.dto.GradlePublishedDependencyInfo;
+import build.utils.DataFormat;
+import build.utils.JarOverlapMatrix;
 import build.utils.Json;
 import build.utils.WithLocalBuildRepository;
 import build.utils.WithPublishLicense;
-import build.utils.ZipUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
-import com.google.common.io.Files;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.zip.ZipFile;
 import lombok.SneakyThrows;
 import org.apache.maven.model.Dependency;
@@ -51,6 +68,7 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.PathSensitive;
@@ -75,9 +93,12 @@ import org.jspecify.annotations.Nullable;
  *   <li>Publishes each Gradle artifact by:
  *     <ul>
  *       <li>Creating a Maven POM that includes dependency and BOM import information
- *       <li>Repackaging the artifact JAR, excluding overlapping entries from dependent artifacts
+ *       <li>Repackaging the artifact JAR, excluding overlapping entries from dependent artifacts;
+ *           artifacts that overlap are found with a {@link JarOverlapMatrix} built once for all the artifacts
  *       <li>Generating a corresponding sources JAR by filtering source archive entries relevant to the module
  *     </ul>
+ *   <li>Publishes up to {@link #getPublishParallelism()} Gradle artifacts concurrently,
+ *       registering them in {@link GradlePublishedDependencies} in the dependency graph order
  * </ul>
  *
  * <p>Inputs:
@@ -109,6 +130,17 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
         getPublishHashes().convention(false);
     }
 
+    /**
+     * The maximum number of dependencies published concurrently.
+     * The output doesn't depend on this value.
+     */
+    @Internal
+    public abstract Property<Integer> getPublishParallelism();
+
+    {
+        getPublishParallelism().convention(Runtime.getRuntime().availableProcessors());
+    }
+
 
     @OutputDirectory
     @Override
@@ -118,11 +150,27 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
         getLocalBuildRepository().convention(getLayout().getBuildDirectory().dir(getName()));
     }
 
+    /**
+     * The format of {@link #getGradlePublishedDependenciesJsonFile()}.
+     */
+    @Input
+    public abstract Property<DataFormat> getGradlePublishedDependenciesFormat();
+
+    {
+        getGradlePublishedDependenciesFormat().convention(DataFormat.JSON);
+    }
+
+    /**
+     * The file with the published dependencies, written in {@link #getGradlePublishedDependenciesFormat()}.
+     * Despite the name, it's a Smile file if the format is {@link DataFormat#SMILE}.
+     */
     @OutputFile
     public abstract RegularFileProperty getGradlePublishedDependenciesJsonFile();
 
     {
-        getGradlePublishedDependenciesJsonFile().convention(getLocalBuildRepository().file("info.json"));
+        getGradlePublishedDependenciesJsonFile().convention(getGradlePublishedDependenciesFormat().flatMap(format ->
+            getLocalBuildRepository().file("info." + format.getFileExtension())
+        ));
     }
 
 
@@ -130,6 +178,7 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
         onlyIf(__ -> {
             getGradleDependenciesFile().finalizeValueOnRead();
             getLocalBuildRepository().finalizeValueOnRead();
+            getGradlePublishedDependenciesFormat().finalizeValueOnRead();
             getGradlePublishedDependenciesJsonFile().finalizeValueOnRead();
             return true;
         });
@@ -144,25 +193,53 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
         deleteIfExists(outputFile);
         createDirectories(outputFile.getParent());
 
-        var gradleDependencies = Json.JSON_READER.readValue(getGradleDependenciesFile().get().getAsFile(),
-            GradleDependencies.class);
+        var gradleDependencies = Json.readValue(
+            getGradleDependenciesFile().get().getAsFile(),
+            GradleDependencies.class
+        );
 
         var publishedDependencies = new GradlePublishedDependencies(gradleDependencies.getGradleVersion());
 
 
-        publishGradleApiBom(gradleDependencies, publishedDependencies);
+        var gradleApiBomId = gradleDependencies.getDependencyIdByPathOrName(GRADLE_API_BOM_NAME,
+            gradleDependencies.getGradleVersion(),
+            GRADLE_API_PUBLISH_GROUP);
 
-        gradleDependencies.getDependencies()
-            .entrySet()
+        publishGradleApiBom(gradleDependencies, gradleApiBomId, publishedDependencies);
+
+        // Fat JAR entries of a dependency are excluded only if some of its dependencies have the same entries
+        var overlapMatrix = createJarOverlapMatrix(
+            gradleDependencies.getDependencies().values().stream()
+                .map(GradleDependencyInfo::getPath)
+                .filter(Objects::nonNull)
+                .map(this::getProjectRelativeFile)
+                .toList(),
+            not(PublishArtifactsToLocalBuildRepository::isNotFatJarEntry),
+            getPublishParallelism().get(),
+            getBuildCancellationToken()
+        );
+
+        // Dependencies are published concurrently, but registered in the graph order, to keep the output stable
+        var depIdsToPublish = gradleDependencies.getDependencies()
+            .keySet()
             .stream()
-            .filter(entry -> entry.getKey().getGroup().equals(GRADLE_API_PUBLISH_GROUP))
-            .forEach(entry -> publishDependency(gradleDependencies,
-                entry.getKey(),
-                entry.getValue(),
-                publishedDependencies));
+            .filter(id -> id.getGroup().equals(GRADLE_API_PUBLISH_GROUP))
+            .toList();
+        var publishedDepInfos = mapInParallel(
+            depIdsToPublish,
+            getPublishParallelism().get(),
+            getName(),
+            getBuildCancellationToken(),
+            id -> publishDependency(gradleDependencies, overlapMatrix, gradleApiBomId, id)
+        );
+        for (var i = 0; i < depIdsToPublish.size(); i++) {
+            publishedDependencies.getDependencies().put(depIdsToPublish.get(i), publishedDepInfos.get(i));
+        }
 
 
-        Json.JSON_WRITER.writeValue(outputFile.toFile(), publishedDependencies);
+        Json.writeValue(outputFile.toFile(), getGradlePublishedDependenciesFormat().get(), publishedDependencies);
+
+        getLogger().info("ZIP file info cache: {}", getZipFileInfoCacheStats());
     }
 
 
@@ -187,11 +264,12 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
             .resolve(pom.getArtifactId() + "-" + pom.getVersion() + ".pom");
         getLogger().lifecycle("Creating {}", outputFile);
         createDirectories(outputFile.getParent());
-        try (var out = newOutputStream(outputFile)) {
-            new MavenXpp3Writer().write(out, pom);
-        }
+        var content = new ByteArrayOutputStream();
+        new MavenXpp3Writer().write(content, pom);
+        var contentBytes = content.toByteArray();
+        write(outputFile, contentBytes);
 
-        publishHashesOf(outputFile.toFile());
+        publishHashesOf(outputFile.toFile(), contentBytes);
 
         return outputFile.toFile();
     }
@@ -212,11 +290,11 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
         return createDependency(id, null, null);
     }
 
-    private File publishGradleApiBom(GradleDependencies gradleDependencies, GradlePublishedDependencies publishedDeps) {
-        var bomId = gradleDependencies.getDependencyIdByPathOrName(GRADLE_API_BOM_NAME,
-            gradleDependencies.getGradleVersion(),
-            GRADLE_API_PUBLISH_GROUP);
-
+    private File publishGradleApiBom(
+        GradleDependencies gradleDependencies,
+        GradleDependencyId bomId,
+        GradlePublishedDependencies publishedDeps
+    ) {
         var pomFile = publishPom(pom -> {
             pom.setGroupId(bomId.getGroup());
             pom.setArtifactId(bomId.getName());
@@ -242,30 +320,40 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
         return pomFile;
     }
 
-    private void publishDependency(
+    private GradlePublishedDependencyInfo publishDependency(
         GradleDependencies gradleDependencies,
-        GradleDependencyId depId,
-        GradleDependencyInfo depInfo,
-        GradlePublishedDependencies publishedDeps
+        JarOverlapMatrix overlapMatrix,
+        GradleDependencyId gradleApiBomId,
+        GradleDependencyId depId
     ) {
         if (getBuildCancellationToken().isCancellationRequested()) {
             throw new BuildCancelledException();
         }
 
-        publishPom(gradleDependencies, depId, depInfo, publishedDeps);
-        var jarFile = publishJar(gradleDependencies, depId, depInfo, publishedDeps);
+        var depInfo = gradleDependencies.getDependencies().get(depId);
+        var localBuildRepository = getLocalBuildRepository().getAsFile().get().toPath();
+
+        var pomFile = publishPom(gradleDependencies, gradleApiBomId, depId, depInfo);
+        var publishedDepInfo = new GradlePublishedDependencyInfo(localBuildRepository.relativize(pomFile.toPath()));
+
+        var jarFile = publishJar(gradleDependencies, overlapMatrix, depId, depInfo);
         if (jarFile != null) {
-            publishSourcesJar(gradleDependencies, depId, jarFile, publishedDeps);
+            publishedDepInfo.setJarFilePath(localBuildRepository.relativize(jarFile.toPath()));
+
+            var sourcesJarFile = publishSourcesJar(gradleDependencies, depId, jarFile);
+            publishedDepInfo.setSourcesJarFilePath(localBuildRepository.relativize(sourcesJarFile.toPath()));
         }
+
+        return publishedDepInfo;
     }
 
     private File publishPom(
         GradleDependencies gradleDependencies,
+        GradleDependencyId gradleApiBomId,
         GradleDependencyId id,
-        GradleDependencyInfo info,
-        GradlePublishedDependencies publishedDeps
+        GradleDependencyInfo info
     ) {
-        var pomFile = publishPom(pom -> {
+        return publishPom(pom -> {
             pom.setGroupId(id.getGroup());
             pom.setArtifactId(id.getName());
             pom.setVersion(id.getVersion());
@@ -277,9 +365,6 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
 
             var addedBoms = new LinkedHashSet<GradleDependencyId>();
 
-            var gradleApiBomId = gradleDependencies.getDependencyIdByPathOrName(GRADLE_API_BOM_NAME,
-                gradleDependencies.getGradleVersion(),
-                GRADLE_API_PUBLISH_GROUP);
             if (id.getGroup().equals(GRADLE_API_PUBLISH_GROUP)) {
                 if (addedBoms.add(gradleApiBomId)) {
                     dependencyManagement.add(createDependency(gradleApiBomId, "pom", "import"));
@@ -304,30 +389,22 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
                 dependencies.add(createDependency(depId));
             });
         });
-
-        publishedDeps.getDependencies()
-            .put(id,
-                new GradlePublishedDependencyInfo(getLocalBuildRepository().getAsFile()
-                    .get()
-                    .toPath()
-                    .relativize(pomFile.toPath())));
-
-        return pomFile;
     }
 
     @Nullable
     @SneakyThrows
     private File publishJar(
         GradleDependencies gradleDependencies,
+        JarOverlapMatrix overlapMatrix,
         GradleDependencyId id,
-        GradleDependencyInfo info,
-        GradlePublishedDependencies publishedDeps
+        GradleDependencyInfo info
     ) {
         var file = Optional.ofNullable(info.getPath()).map(this::getProjectRelativeFile).orElse(null);
         if (file == null) {
             return null;
         }
 
+        var allEntries = getZipFileEntryNames(file);
         var entriesToExclude = gradleDependencies.getAllDependencies(id)
             .stream()
             .map(gradleDependencies.getDependencies()::get)
@@ -335,12 +412,12 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
             .map(GradleDependencyInfo::getPath)
             .filter(Objects::nonNull)
             .map(this::getProjectRelativeFile)
-            .map(ZipUtils::getZipFileEntryNames)
+            .filter(depFile -> overlapMatrix.overlaps(file, depFile))
+            .map(depFile -> allEntries.intersection(getZipFileEntryNames(depFile)))
             .flatMap(Collection::stream)
             .filter(not(PublishArtifactsToLocalBuildRepository::isNotFatJarEntry))
             .collect(toImmutableSet());
 
-        var allEntries = getZipFileEntryNames(file);
         var entriesToInclude = allEntries.stream().filter(not(entriesToExclude::contains)).toList();
 
         var outputFile = getLocalBuildRepository().getAsFile()
@@ -351,11 +428,13 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
             .resolve(id.getVersion())
             .resolve(id.getName() + "-" + id.getVersion() + ".jar");
         getLogger().lifecycle("Creating {}", outputFile);
-        copyJarEntries(file, outputFile.toFile(), entriesToInclude, getBuildCancellationToken());
-
-        publishedDeps.getDependencies()
-            .get(id)
-            .setJarFilePath(getLocalBuildRepository().getAsFile().get().toPath().relativize(outputFile));
+        copyJarEntries(
+            getZipFilesService().get(),
+            file,
+            outputFile.toFile(),
+            entriesToInclude,
+            getBuildCancellationToken()
+        );
 
         publishHashesOf(outputFile.toFile());
 
@@ -366,35 +445,45 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
     private File publishSourcesJar(
         GradleDependencies gradleDependencies,
         GradleDependencyId id,
-        File jarFile,
-        GradlePublishedDependencies publishedDeps
+        File jarFile
     ) {
-        var allEntries = getZipFileEntryNames(jarFile);
-        var entryPrefixes = allEntries.stream().map(name -> {
-            var prefix = getEntryPrefix(name);
-            name = name.substring(prefix.length());
-            name = substringBeforeLast(name, ".");
-            name = substringBeforeLast(name, "$");
-            return prefix + name;
-        }).distinct().toList();
-
         var sourcesArchiveFile = getProjectRelativeFile(gradleDependencies.getSourcesArchiveFile());
-        var allSourceEntries = getZipFileEntryNames(sourcesArchiveFile);
-        var entriesToInclude = allSourceEntries.stream()
-            .filter(not(PublishArtifactsToLocalBuildRepository::isNotFatJarEntry))
-            .filter(name -> entryPrefixes.stream().anyMatch(name::startsWith))
-            .collect(toCollection(LinkedHashSet::new));
+        final Set<String> entriesToInclude;
+
+        // The JAR file has just been published, so it's read directly, without the persistent ZIP index store
+        // and the pool of open ZIP files. A pooled file would stay open until the end of the build.
+        try (var jarZipFile = new ZipFile(jarFile, UTF_8)) {
+            var jarIndex = readZipIndex(jarFile);
+            var allEntries = new TreeSet<String>();
+            for (var i = 0; i < jarIndex.size(); i++) {
+                if (!jarIndex.isDirectory(i)) {
+                    allEntries.add(jarIndex.getName(i));
+                }
+            }
+
+            var entryPrefixes = allEntries.stream().map(name -> {
+                var prefix = getEntryPrefix(name);
+                name = name.substring(prefix.length());
+                name = substringBeforeLast(name, ".");
+                name = substringBeforeLast(name, "$");
+                return prefix + name;
+            }).distinct().toList();
+
+            entriesToInclude = getZipFileEntryNamesStartingWith(sourcesArchiveFile, entryPrefixes).stream()
+                .filter(not(PublishArtifactsToLocalBuildRepository::isNotFatJarEntry))
+                .collect(toCollection(LinkedHashSet::new));
 
-        try (var zipFile = new ZipFile(jarFile, UTF_8)) {
             var classEntries = allEntries.stream().filter(name -> name.endsWith(".class")).toList();
             for (var entryName : classEntries) {
-                var entry = requireNonNull(zipFile.getEntry(entryName));
-                try (var in = zipFile.getInputStream(entry)) {
-                    var sourceEntryName = getSourceFile(in);
-                    if (sourceEntryName != null) {
-                        entriesToInclude.add(sourceEntryName);
+                var entryIndex = jarIndex.indexOf(entryName);
+                var key = new ClassEntryKey(entryName, jarIndex.getCrc(entryIndex), jarIndex.getSize(entryIndex));
+                var sourceEntryName = SOURCE_FILES_CACHE.get(key, () -> {
+                    var entry = requireNonNull(jarZipFile.getEntry(entryName));
+                    try (var in = jarZipFile.getInputStream(entry)) {
+                        return Optional.ofNullable(getSourceFile(in));
                     }
-                }
+                });
+                sourceEntryName.ifPresent(entriesToInclude::add);
             }
 
         }
@@ -407,17 +496,34 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
             .resolve(id.getVersion())
             .resolve(id.getName() + "-" + id.getVersion() + "-sources.jar");
         getLogger().lifecycle("Creating {}", outputFile);
-        copyJarEntries(sourcesArchiveFile, outputFile.toFile(), entriesToInclude, getBuildCancellationToken());
-
-        publishedDeps.getDependencies()
-            .get(id)
-            .setSourcesJarFilePath(getLocalBuildRepository().getAsFile().get().toPath().relativize(outputFile));
+        copyJarEntries(
+            getZipFilesService().get(),
+            sourcesArchiveFile,
+            outputFile.toFile(),
+            entriesToInclude,
+            getBuildCancellationToken()
+        );
 
         publishHashesOf(outputFile.toFile());
 
         return outputFile.toFile();
     }
 
+    /**
+     * Source files of classes, by class entries. Shared by all task executions in the same Gradle daemon,
+     * as the same Gradle JARs are published again and again.
+     */
+    private static final Cache<ClassEntryKey, Optional<String>> SOURCE_FILES_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(500_000)
+        .build();
+
+    private record ClassEntryKey(
+        String entryName,
+        int crc,
+        long size
+    ) {
+    }
+
     private static boolean isNotFatJarEntry(String entryName) {
         if (entryName.startsWith("META-INF/")) {
             return entryName.endsWith(".MF")
@@ -437,23 +543,40 @@ public abstract class PublishArtifactsToLocalBuildRepository extends AbstractGra
 
 
     @SuppressWarnings("deprecation")
+    private static final Map<String, HashFunction> HASH_FUNCTIONS = ImmutableMap.of(
+        ".md5", Hashing.md5(),
+        ".sha1", Hashing.sha1(),
+        ".sha256", Hashing.sha256(),
+        ".sha512", Hashing.sha512()
+    );
+
     private void publishHashesOf(File file) {
         if (!TRUE.equals(getPublishHashes().getOrNull())) {
             return;
         }
 
-        publishHashOf(file, Hashing.md5(), ".md5");
-        publishHashOf(file, Hashing.sha1(), ".sha1");
-        publishHashOf(file, Hashing.sha256(), ".sha256");
-        publishHashOf(file, Hashing.sha512(), ".sha512");
+        var hashes = hashFile(file.toPath(), List.copyOf(HASH_FUNCTIONS.values()));
+        publishHashesOf(file, hashes);
+    }
+
+    private void publishHashesOf(File file, byte[] content) {
+        if (!TRUE.equals(getPublishHashes().getOrNull())) {
+            return;
+        }
+
+        var hashes = hashBytes(content, List.copyOf(HASH_FUNCTIONS.values()));
+        publishHashesOf(file, hashes);
     }
 
     @SneakyThrows
-    private static void publishHashOf(File file, HashFunction hashFunction, String extension) {
-        var hash = Files.asByteSource(file).hash(hashFunction).toString();
-        var destPath = new File(file.getPath() + extension).toPath();
-        try (var out = newOutputStream(destPath)) {
-            out.write(hash.getBytes(UTF_8));
+    private static void publishHashesOf(File file, List<HashCode> hashes) {
+        var extensions = List.copyOf(HASH_FUNCTIONS.keySet());
+        for (var i = 0; i < extensions.size(); i++) {
+            var hash = hashes.get(i).toString();
+            var destPath = new File(file.getPath() + extensions.get(i)).toPath();
+            try (var out = newOutputStream(destPath)) {
+                out.write(hash.getBytes(UTF_8));
+            }
         }
     }
 
@@ -1,6 +1,8 @@
 package build.tasks;
 
 import static build.Constants.GRADLE_API_BOM_NAME;
+import static build.Constants.GRADLE_API_PUBLISH_GROUP;
+import static build.Constants.LOCAL_BUILD_REPOSITORY_NAME;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.deleteIfExists;
 import static java.nio.file.Files.writeString;
@@ -9,15 +11,22 @@ import static org.gradle.api.tasks.PathSensitivity.RELATIVE;
 
 import build.dto.GradlePublishedDependencies;
 import build.dto.GradlePublishedDependencyInfo;
+import build.utils.DataFormat;
 import build.utils.Json;
 import build.utils.WithLocalBuildRepository;
 import java.io.File;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import javax.inject.Inject;
 import org.gradle.api.BuildCancelledException;
+import org.gradle.api.artifacts.dsl.RepositoryHandler;
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.internal.DomainObjectContext;
+import org.gradle.api.internal.artifacts.DependencyManagementServices;
+import org.gradle.api.internal.artifacts.DependencyResolutionServices;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
@@ -48,11 +57,16 @@ import org.jspecify.annotations.Nullable;
  *   <li>Resolves each artifact using detached configurations to ensure correctness
  * </ul>
  *
+ * <p>Artifacts are resolved by a dedicated resolver: {@link #getLocalBuildRepository()} is the only repository
+ * of the {@link build.Constants#GRADLE_API_PUBLISH_GROUP} group, and other dependencies are resolved
+ * from the project's Maven repositories. So, every local build repository is verified on its own,
+ * even if the project resolves the group from another one.
+ *
  * <p>Inputs:
  * <ul>
  *   <li>{@link #getLocalBuildRepository()} – local Gradle Maven-style build repository
  *   <li>{@link #getGradlePublishedDependenciesJsonFile()} – {@link GradlePublishedDependencies} file
- *   describing published dependencies
+ *   describing published dependencies, in JSON or Smile format
  *   <li>{@link #getIgnoreFailures()} – controls whether verification failures abort the build
  * </ul>
  */
@@ -65,12 +79,20 @@ public abstract class VerifyPublishedArtifactsToLocalBuildRepository
         notCompatibleWithConfigurationCache("Resolves configurations at execution");
     }
 
+    private final DomainObjectContext resolutionContext = (DomainObjectContext) getProject();
+
+    private final RepositoryHandler projectRepositories = getProject().getRepositories();
+
 
     @InputDirectory
     @PathSensitive(RELATIVE)
     @Override
     public abstract DirectoryProperty getLocalBuildRepository();
 
+    /**
+     * The file with the published dependencies, in any {@link DataFormat}.
+     * Despite the name, it can be a Smile file: the format is detected when the file is read.
+     */
     @InputFile
     @PathSensitive(RELATIVE)
     public abstract RegularFileProperty getGradlePublishedDependenciesJsonFile();
@@ -114,13 +136,16 @@ public abstract class VerifyPublishedArtifactsToLocalBuildRepository
         deleteIfExists(outputFile);
         createDirectories(outputFile.getParent());
 
-        var publishedDependencies = Json.JSON_READER.readValue(
+        var resolver = createResolver();
+
+        var publishedDependencies = Json.readValue(
             getGradlePublishedDependenciesJsonFile().get().getAsFile(),
             GradlePublishedDependencies.class
         );
 
         publishedDependencies.getDependencies().forEach((id, info) -> {
             assertThatResolvedFiles(
+                resolver,
                 info,
                 id + "@pom",
                 GradlePublishedDependencyInfo::getPomFilePath,
@@ -128,6 +153,7 @@ public abstract class VerifyPublishedArtifactsToLocalBuildRepository
                 true
             );
             assertThatResolvedFiles(
+                resolver,
                 info,
                 id.toString(),
                 GradlePublishedDependencyInfo::getJarFilePath,
@@ -135,6 +161,7 @@ public abstract class VerifyPublishedArtifactsToLocalBuildRepository
                 !id.getName().equals(GRADLE_API_BOM_NAME)
             );
             assertThatResolvedFiles(
+                resolver,
                 info,
                 id + ":sources",
                 GradlePublishedDependencyInfo::getSourcesJarFilePath,
@@ -146,7 +173,35 @@ public abstract class VerifyPublishedArtifactsToLocalBuildRepository
         writeString(outputFile, "OK");
     }
 
+    private DependencyResolutionServices createResolver() {
+        var resolver = getDependencyManagementServices().newDetachedResolver(resolutionContext);
+        var repositories = resolver.getResolveRepositoryHandler();
+        repositories.exclusiveContent(exclusive -> {
+            exclusive.forRepositories(
+                repositories.maven(maven -> {
+                    maven.setName(LOCAL_BUILD_REPOSITORY_NAME);
+                    maven.setUrl(getLocalBuildRepository().getAsFile().get().toURI());
+                })
+            );
+            exclusive.filter(filter -> {
+                filter.includeGroup(GRADLE_API_PUBLISH_GROUP);
+            });
+        });
+        projectRepositories.withType(MavenArtifactRepository.class).forEach(projectRepository -> {
+            if (projectRepository.getName().equals(LOCAL_BUILD_REPOSITORY_NAME)) {
+                return;
+            }
+
+            repositories.maven(maven -> {
+                maven.setName(projectRepository.getName());
+                maven.setUrl(projectRepository.getUrl());
+            });
+        });
+        return resolver;
+    }
+
     private void assertThatResolvedFiles(
+        DependencyResolutionServices resolver,
         GradlePublishedDependencyInfo publishedDepInfo,
         String notation,
         Function<GradlePublishedDependencyInfo, @Nullable String> pathGetter,
@@ -170,8 +225,8 @@ public abstract class VerifyPublishedArtifactsToLocalBuildRepository
 
             final Set<File> resolvedFiles;
             try {
-                var dependency = getDependencies().create(notation);
-                var configuration = getConfigurations().detachedConfiguration(dependency);
+                var dependency = resolver.getDependencyHandler().create(notation);
+                var configuration = resolver.getConfigurationContainer().detachedConfiguration(dependency);
                 resolvedFiles = configuration.getFiles();
             } catch (Throwable exception) {
                 throw new AssertionError("Failed to resolve configuration: " + notation, exception);
@@ -195,4 +250,8 @@ public abstract class VerifyPublishedArtifactsToLocalBuildRepository
         return getLocalBuildRepository().file(path).get().getAsFile();
     }
 
+
+    @Inject
+    protected abstract DependencyManagementServices getDependencyManagementServices();
+
 }
@@ -6,6 +6,9 @@ import static java.lang.reflect.Modifier.isStatic;
 import static java.util.Arrays.stream;
 import static java.util.Comparator.comparingInt;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
@@ -50,10 +53,86 @@ public abstract class AsmUtils {
     @Nullable
     @SneakyThrows
     public static String getSourceFile(@WillNotClose InputStream in) {
+        var bytes = in.readAllBytes();
+        return getSourceFile(bytes, bytes.length);
+    }
+
+    /**
+     * Returns the path of the source file of the class, based on the class package and
+     * the {@code SourceFile} attribute.
+     *
+     * <p>Only the constant pool and the attribute tables are read, method bodies are skipped without parsing.
+     * Malformed class files are passed to ASM that reports the error.
+     */
+    @Nullable
+    public static String getSourceFile(byte[] bytes, int length) {
+        var offsets = readConstantOffsets(bytes, length);
+        if (offsets == null) {
+            return getSourceFileWithAsm(bytes, length);
+        }
+
+        try {
+            var offset = offsets[0];
+            var thisClassIndex = readUnsignedShort(bytes, offset + 2);
+            offset += 6;
+
+            var interfacesCount = readUnsignedShort(bytes, offset);
+            offset += 2 + 2 * interfacesCount;
+
+            // fields, then methods:
+            for (var membersKind = 0; membersKind < 2; membersKind++) {
+                var membersCount = readUnsignedShort(bytes, offset);
+                offset += 2;
+                for (var member = 0; member < membersCount; member++) {
+                    var attributesCount = readUnsignedShort(bytes, offset + 6);
+                    offset += 8;
+                    for (var attribute = 0; attribute < attributesCount; attribute++) {
+                        offset += 6 + readInt(bytes, offset + 2);
+                    }
+                }
+            }
+
+            @Nullable String fileName = null;
+            var attributesCount = readUnsignedShort(bytes, offset);
+            offset += 2;
+            for (var attribute = 0; attribute < attributesCount; attribute++) {
+                if (offset + 6 > length) {
+                    return getSourceFileWithAsm(bytes, length);
+                }
+
+                var attributeName = readUtf8(bytes, offsets, readUnsignedShort(bytes, offset));
+                if (SOURCE_FILE_ATTRIBUTE.equals(attributeName)) {
+                    var sourceFileIndex = readUnsignedShort(bytes, offset + 6);
+                    fileName = sourceFileIndex != 0 ? readUtf8(bytes, offsets, sourceFileIndex) : null;
+                    break;
+                }
+                offset += 6 + readInt(bytes, offset + 2);
+            }
+            if (offset > length) {
+                return getSourceFileWithAsm(bytes, length);
+            }
+
+            var classOffset = constantOffset(offsets, thisClassIndex);
+            if (classOffset < 0 || bytes[classOffset] != CONSTANT_CLASS) {
+                return getSourceFileWithAsm(bytes, length);
+            }
+            var className = readUtf8(bytes, offsets, readUnsignedShort(bytes, classOffset + 1));
+
+            return getSourceFile(className, fileName);
+
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            return getSourceFileWithAsm(bytes, length);
+        }
+    }
+
+    private static final String SOURCE_FILE_ATTRIBUTE = "SourceFile";
+
+    @Nullable
+    private static String getSourceFileWithAsm(byte[] bytes, int length) {
         var dirRef = new AtomicReference<@Nullable String>();
         var fileNameRef = new AtomicReference<@Nullable String>();
 
-        var classReader = new ClassReader(in);
+        var classReader = new ClassReader(bytes, 0, length);
         classReader.accept(new ClassVisitor(LATEST_ASM_API) {
             @Override
             public void visit(
@@ -64,7 +143,7 @@ public abstract class AsmUtils {
                 @Nullable String superName,
                 @Nullable String[] interfaces
             ) {
-                dirRef.set(substringBeforeLast(name, "/"));
+                dirRef.set(name);
             }
 
             @Override
@@ -73,12 +152,16 @@ public abstract class AsmUtils {
             }
         }, 0);
 
-        var fileName = fileNameRef.get();
+        return getSourceFile(dirRef.get(), fileNameRef.get());
+    }
+
+    @Nullable
+    private static String getSourceFile(@Nullable String classInternalName, @Nullable String fileName) {
         if (fileName == null || fileName.isEmpty()) {
             return null;
         }
 
-        var dir = dirRef.get();
+        var dir = classInternalName != null ? substringBeforeLast(classInternalName, "/") : null;
         if (dir != null && !dir.isEmpty()) {
             return dir + '/' + fileName;
         } else {
@@ -86,4 +169,169 @@ public abstract class AsmUtils {
         }
     }
 
+
+    private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    /**
+     * Checks whether the class file has a method reference to a class
+     * whose internal name starts with {@code ownerPrefix} and ends with {@code ownerSuffix}.
+     *
+     * <p>Only the constant pool is scanned, without decoding anything but matching class names,
+     * so it's much cheaper than {@link ClassReader#accept(ClassVisitor, int)}.
+     * The prefix and the suffix must be ASCII strings.
+     *
+     * <p>If the bytes can't be parsed as a class file, {@code true} is returned,
+     * so the class is still passed to ASM that reports the error.
+     */
+    public static boolean hasMethodReference(byte[] bytes, int length, String ownerPrefix, String ownerSuffix) {
+        var offsets = readConstantOffsets(bytes, length);
+        if (offsets == null) {
+            return true;
+        }
+
+        var constantsCount = offsets.length;
+        for (var index = 1; index < constantsCount; index++) {
+            var refOffset = offsets[index];
+            var tag = bytes[refOffset];
+            if (tag != CONSTANT_METHODREF && tag != CONSTANT_INTERFACE_METHODREF) {
+                continue;
+            }
+
+            var classOffset = constantOffset(offsets, readUnsignedShort(bytes, refOffset + 1));
+            if (classOffset < 0 || bytes[classOffset] != CONSTANT_CLASS) {
+                return true;
+            }
+
+            var nameOffset = constantOffset(offsets, readUnsignedShort(bytes, classOffset + 1));
+            if (nameOffset < 0 || bytes[nameOffset] != CONSTANT_UTF8) {
+                return true;
+            }
+
+            var nameLength = readUnsignedShort(bytes, nameOffset + 1);
+            var nameStart = nameOffset + 3;
+            if (nameLength >= ownerPrefix.length() + ownerSuffix.length()
+                && regionMatches(bytes, nameStart, ownerPrefix)
+                && regionMatches(bytes, nameStart + nameLength - ownerSuffix.length(), ownerSuffix)
+            ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns offsets of the constant pool entries by their indexes. As index {@code 0} isn't used
+     * by the constant pool, the first element is the offset of the data that follows the constant pool.
+     *
+     * @return {@code null} if the bytes can't be parsed as a class file
+     */
+    private static int @Nullable [] readConstantOffsets(byte[] bytes, int length) {
+        if (length < 10 || readInt(bytes, 0) != CLASS_FILE_MAGIC) {
+            return null;
+        }
+
+        var constantsCount = readUnsignedShort(bytes, 8);
+        var offsets = new int[constantsCount];
+        var offset = 10;
+        for (var index = 1; index < constantsCount; index++) {
+            if (offset >= length) {
+                return null;
+            }
+
+            offsets[index] = offset;
+            var tag = bytes[offset];
+            switch (tag) {
+                case CONSTANT_UTF8 -> {
+                    if (offset + 3 > length) {
+                        return null;
+                    }
+                    offset += 3 + readUnsignedShort(bytes, offset + 1);
+                }
+                case CONSTANT_CLASS, CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE ->
+                    offset += 3;
+                case CONSTANT_METHOD_HANDLE -> offset += 4;
+                case CONSTANT_INTEGER, CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF,
+                     CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC,
+                     CONSTANT_INVOKE_DYNAMIC -> offset += 5;
+                case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                    offset += 9;
+                    index++;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        if (offset > length) {
+            return null;
+        }
+
+        offsets[0] = offset;
+        return offsets;
+    }
+
+    private static int constantOffset(int[] offsets, int index) {
+        if (index <= 0 || index >= offsets.length || offsets[index] == 0) {
+            return -1;
+        }
+        return offsets[index];
+    }
+
+    /**
+     * Decodes a {@code CONSTANT_Utf8_info} entry, which uses the modified UTF-8 encoding.
+     */
+    private static String readUtf8(byte[] bytes, int[] offsets, int index) {
+        var offset = constantOffset(offsets, index);
+        if (offset < 0 || bytes[offset] != CONSTANT_UTF8) {
+            throw new IllegalArgumentException("Not a UTF-8 constant: " + index);
+        }
+
+        var length = readUnsignedShort(bytes, offset + 1);
+        var in = new DataInputStream(new ByteArrayInputStream(bytes, offset + 1, 2 + length));
+        try {
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid UTF-8 constant: " + index, e);
+        }
+    }
+
+    private static boolean regionMatches(byte[] bytes, int offset, String asciiRegion) {
+        for (var i = 0; i < asciiRegion.length(); i++) {
+            if (bytes[offset + i] != (byte) asciiRegion.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24)
+            | ((bytes[offset + 1] & 0xFF) << 16)
+            | ((bytes[offset + 2] & 0xFF) << 8)
+            | (bytes[offset + 3] & 0xFF);
+    }
+
 }
@@ -0,0 +1,199 @@
+package build.utils;
+
+import static build.utils.CacheCleanup.cleanupUnusedEntries;
+import static build.utils.CacheCleanup.markUsed;
+import static build.utils.HashUtils.hashFile;
+import static build.utils.Utils.getGradleUserHomeDir;
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createLink;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.size;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A content-addressed store of files, shared by all builds of the same user.
+ *
+ * <p>Every file is stored once, by the SHA-256 hash of its content. Stored files are materialized
+ * as hard links, so the same third-party JAR file extracted for many Gradle versions takes disk space only once.
+ * If a hard link can't be created (for example, if the target is on another file system),
+ * the stored file is copied.
+ *
+ * <p>Materialized files share the content with the store, so they must never be modified in place.
+ * Deleting and replacing them is safe.
+ *
+ * <p>Stored files that haven't been used for a while are deleted by {@link CacheCleanup}.
+ * Materialized files stay intact, as they are hard links or copies.
+ *
+ * <p>The store directory is {@code caches/build-logic/blobs-v1} in the Gradle user home.
+ * It can be changed via {@code systemProp.build-logic.blob-store.dir} in {@code gradle.properties}.
+ * An empty value disables the store, and files are just copied.
+ */
+public abstract class BlobStore {
+
+    private static final int FORMAT_VERSION = 1;
+
+    @Nullable
+    private static final Path STORE_DIR = getStoreDir();
+
+    @Nullable
+    private static Path getStoreDir() {
+        var dir = System.getProperty("build-logic.blob-store.dir");
+        if (dir != null) {
+            return dir.isEmpty() ? null : Paths.get(dir);
+        }
+
+        return getGradleUserHomeDir().resolve("caches/build-logic/blobs-v" + FORMAT_VERSION);
+    }
+
+
+    /**
+     * Puts the {@code source} file into the store and materializes it as {@code target}.
+     * An existing {@code target} file is replaced.
+     */
+    @SneakyThrows
+    public static void materialize(Path source, Path target) {
+        createDirectories(target.toAbsolutePath().getParent());
+        deleteIfExists(target);
+
+        var blob = store(source);
+        if (blob != null) {
+            link(blob, source, target);
+        } else {
+            copy(source, target, REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Puts the {@code source} content into the store and materializes it as {@code target}.
+     * An existing {@code target} file is replaced. The stream is not closed.
+     */
+    @SneakyThrows
+    public static void materialize(InputStream source, Path target) {
+        createDirectories(target.toAbsolutePath().getParent());
+        deleteIfExists(target);
+
+        var tempFile = createStoreTempFile();
+        if (tempFile == null) {
+            copy(source, target);
+            return;
+        }
+
+        try {
+            var hashingSource = new HashingInputStream(Hashing.sha256(), source);
+            copy(hashingSource, tempFile, REPLACE_EXISTING);
+            var blob = moveToStore(tempFile, hashingSource.hash().toString());
+            link(blob, tempFile, target);
+        } finally {
+            deleteIfExists(tempFile);
+        }
+    }
+
+
+    /**
+     * Returns the stored file with the content of {@code source}, or {@code null} if the store can't be used.
+     */
+    @Nullable
+    private static Path store(Path source) {
+        if (STORE_DIR == null) {
+            return null;
+        }
+
+        try {
+            var hash = hashFile(source, List.of(Hashing.sha256())).getFirst().toString();
+            var blob = getBlob(hash);
+            if (isRegularFile(blob) && size(blob) == size(source)) {
+                markUsed(blob);
+                return blob;
+            }
+
+            var tempFile = createStoreTempFile();
+            if (tempFile == null) {
+                return null;
+            }
+            try {
+                copy(source, tempFile, REPLACE_EXISTING);
+                return moveToStore(tempFile, hash);
+            } finally {
+                deleteIfExists(tempFile);
+            }
+
+        } catch (IOException ignored) {
+            // the store is optional
+            return null;
+        }
+    }
+
+    /**
+     * Creates a temporary file in the store, or returns {@code null} if the store can't be used.
+     */
+    @Nullable
+    private static Path createStoreTempFile() {
+        if (STORE_DIR == null) {
+            return null;
+        }
+
+        cleanupUnusedEntries(STORE_DIR, 2);
+
+        try {
+            var tempDir = createDirectories(STORE_DIR.resolve("tmp"));
+            return createTempFile(tempDir, "blob-", ".tmp");
+        } catch (IOException ignored) {
+            // the store is optional
+            return null;
+        }
+    }
+
+    private static Path moveToStore(Path tempFile, String hash) throws IOException {
+        var blob = getBlob(hash);
+        if (isRegularFile(blob) && size(blob) == size(tempFile)) {
+            markUsed(blob);
+            return blob;
+        }
+
+        createDirectories(blob.getParent());
+        try {
+            move(tempFile, blob, ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException ignored) {
+            // stored concurrently by another process
+        }
+        return blob;
+    }
+
+    private static Path getBlob(String hash) {
+        return requireNonNull(STORE_DIR).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Materializes the {@code blob} as {@code target}.
+     * If the blob has been deleted concurrently by a cleanup, {@code source} with the same content is copied.
+     */
+    private static void link(Path blob, Path source, Path target) throws IOException {
+        try {
+            createLink(target, blob);
+        } catch (NoSuchFileException ignored) {
+            copy(source, target, REPLACE_EXISTING);
+        } catch (IOException | UnsupportedOperationException ignored) {
+            // hard links aren't supported, or the target is on another file system
+            copy(blob, target, REPLACE_EXISTING);
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package build.utils;
+
+import static build.utils.Utils.tryToDeleteRecursively;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.find;
+import static java.nio.file.Files.getFileAttributeView;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.readAttributes;
+import static java.nio.file.Files.setLastModifiedTime;
+import static java.nio.file.Files.write;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deletes entries of the persistent stores in the Gradle user home that haven't been used for a while.
+ *
+ * <p>Gradle doesn't clean up {@code caches/build-logic}, so every store cleans up its own directory.
+ * An entry is marked as used by setting its last access time explicitly, so it works even on file systems
+ * mounted with {@code noatime}. To not turn every read into a write, the time is set at most once a day.
+ *
+ * <p>Entries that haven't been used for {@code systemProp.build-logic.caches.max-unused-days}
+ * days (30 by default, like Gradle's own caches) are deleted. Every store directory is cleaned up
+ * at most once a day, by the first build that uses it.
+ */
+public abstract class CacheCleanup {
+
+    private static final Duration MAX_UNUSED = Duration.ofDays(
+        Long.getLong("build-logic.caches.max-unused-days", 30)
+    );
+
+    private static final Duration MARK_USED_INTERVAL = Duration.ofDays(1);
+
+    private static final Duration CLEANUP_INTERVAL = Duration.ofDays(1);
+
+    private static final String LAST_CLEANUP_FILE_NAME = ".last-cleanup";
+
+    private static final Set<Path> CLEANED_UP_DIRS = ConcurrentHashMap.newKeySet();
+
+
+    /**
+     * Marks the store entry (a file or a directory) as used.
+     */
+    public static void markUsed(Path entry) {
+        try {
+            var now = Instant.now();
+            var lastAccessTime = readAttributes(entry, BasicFileAttributes.class).lastAccessTime().toInstant();
+            if (lastAccessTime.plus(MARK_USED_INTERVAL).isBefore(now)) {
+                getFileAttributeView(entry, BasicFileAttributeView.class).setTimes(null, FileTime.from(now), null);
+            }
+        } catch (IOException ignored) {
+            // the entry was deleted concurrently, or its access time can't be set
+        }
+    }
+
+    /**
+     * Deletes the store entries that haven't been used for too long.
+     *
+     * @param depth the depth of entries in {@code storeDir}: {@code 1} if they are right in it,
+     *     {@code 2} if they are in its subdirectories, etc.
+     */
+    public static void cleanupUnusedEntries(Path storeDir, int depth) {
+        if (!CLEANED_UP_DIRS.add(storeDir.toAbsolutePath())) {
+            return;
+        }
+
+        try {
+            var now = Instant.now();
+            var lastCleanupFile = storeDir.resolve(LAST_CLEANUP_FILE_NAME);
+            if (isRegularFile(lastCleanupFile)
+                && getLastModifiedTime(lastCleanupFile).toInstant().plus(CLEANUP_INTERVAL).isAfter(now)
+            ) {
+                return;
+            }
+
+            createDirectories(storeDir);
+            write(lastCleanupFile, new byte[0]);
+            setLastModifiedTime(lastCleanupFile, FileTime.from(now));
+
+            var unusedSince = now.minus(MAX_UNUSED);
+            try (
+                var entries = find(
+                    storeDir,
+                    depth,
+                    (path, attrs) -> !path.equals(storeDir)
+                        && storeDir.relativize(path).getNameCount() == depth
+                        && !path.getFileName().toString().startsWith(".")
+                        && attrs.lastAccessTime().toInstant().isBefore(unusedSince)
+                )
+            ) {
+                entries.forEach(CacheCleanup::deleteEntry);
+            }
+
+        } catch (Exception ignored) {
+            // the cleanup will be retried by the next build
+        }
+    }
+
+    private static void deleteEntry(Path entry) {
+        try {
+            if (isDirectory(entry)) {
+                tryToDeleteRecursively(entry);
+            } else {
+                deleteIfExists(entry);
+            }
+        } catch (IOException ignored) {
+            // the entry is used by another process, it will be deleted by the next cleanup
+        }
+    }
+
+}
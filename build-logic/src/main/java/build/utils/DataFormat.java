@@ -0,0 +1,25 @@
+package build.utils;
+
+/**
+ * Serialization format of the files passed between tasks.
+ *
+ * <p>{@link #JSON} is human-readable. {@link #SMILE} is binary JSON: it's smaller, and faster to write and parse.
+ * The format of a file is detected by its content when it's read, see {@link Json#readValue}.
+ */
+public enum DataFormat {
+
+    JSON("json"),
+    SMILE("smile"),
+    ;
+
+    private final String fileExtension;
+
+    DataFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+}
@@ -0,0 +1,419 @@
+package build.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SequencedSet;
+import java.util.function.Predicate;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable sorted set of strings, stored front-coded.
+ *
+ * <p>Strings are split into blocks of {@link #BLOCK_SIZE}. The first string of every block is kept as is,
+ * and every other string is stored as the length of the prefix it shares with the previous string
+ * followed by the UTF-8 bytes of the rest. ZIP entry names share long package prefixes,
+ * so the set takes a fraction of the memory of a {@link java.util.HashSet} of the same names.
+ *
+ * <p>Lookups and prefix queries do a binary search over the block heads and decode at most one block.
+ * Intersections are calculated by merging two sorted sets.
+ */
+public final class FrontCodedStringSet extends AbstractSet<String> implements SequencedSet<String> {
+
+    private static final int BLOCK_SIZE = 16;
+
+    private static final FrontCodedStringSet EMPTY = new FrontCodedStringSet(new String[0], new int[0], new byte[0], 0);
+
+
+    /**
+     * @param strings strings sorted according to {@link String#compareTo(String)}, without duplicates
+     */
+    public static FrontCodedStringSet copyOfSorted(List<String> strings) {
+        if (strings.isEmpty()) {
+            return EMPTY;
+        }
+
+        var blockHeads = new String[(strings.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        var blockOffsets = new int[blockHeads.length];
+        var data = new ByteArrayOutputStream();
+        String previous = null;
+        for (var i = 0; i < strings.size(); i++) {
+            var string = strings.get(i);
+            if (previous != null && previous.compareTo(string) >= 0) {
+                throw new IllegalArgumentException("Strings are not sorted or have duplicates: "
+                    + previous + ", " + string);
+            }
+
+            if (i % BLOCK_SIZE == 0) {
+                blockHeads[i / BLOCK_SIZE] = string;
+                blockOffsets[i / BLOCK_SIZE] = data.size();
+            } else {
+                var sharedLength = sharedPrefixLength(previous, string);
+                var suffix = string.substring(sharedLength).getBytes(UTF_8);
+                writeVarInt(data, sharedLength);
+                writeVarInt(data, suffix.length);
+                data.writeBytes(suffix);
+            }
+            previous = string;
+        }
+
+        return new FrontCodedStringSet(blockHeads, blockOffsets, data.toByteArray(), strings.size());
+    }
+
+    public static FrontCodedStringSet copyOf(Collection<String> strings) {
+        if (strings instanceof FrontCodedStringSet set) {
+            return set;
+        }
+        return copyOfSorted(strings.stream().distinct().sorted().toList());
+    }
+
+    private static int sharedPrefixLength(String previous, String string) {
+        var length = Math.min(previous.length(), string.length());
+        var shared = 0;
+        while (shared < length && previous.charAt(shared) == string.charAt(shared)) {
+            shared++;
+        }
+        // don't split a surrogate pair, otherwise the suffix can't be encoded in UTF-8
+        if (shared > 0 && Character.isHighSurrogate(string.charAt(shared - 1))) {
+            shared--;
+        }
+        return shared;
+    }
+
+    /**
+     * Reads a set written by {@link #writeTo(DataOutput)}. Only block heads are decoded,
+     * the front-coded data is copied as is.
+     */
+    static FrontCodedStringSet readFrom(ByteBuffer buf) {
+        var size = buf.getInt();
+        var blockHeads = new String[buf.getInt()];
+        var blockOffsets = new int[blockHeads.length];
+        for (var i = 0; i < blockHeads.length; i++) {
+            var headBytes = new byte[buf.getInt()];
+            buf.get(headBytes);
+            blockHeads[i] = new String(headBytes, UTF_8);
+            blockOffsets[i] = buf.getInt();
+        }
+        var data = new byte[buf.getInt()];
+        buf.get(data);
+
+        if (size == 0) {
+            return EMPTY;
+        }
+        if (blockHeads.length != (size + BLOCK_SIZE - 1) / BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid blocks count: " + blockHeads.length);
+        }
+        return new FrontCodedStringSet(blockHeads, blockOffsets, data, size);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+
+    private final String[] blockHeads;
+    private final int[] blockOffsets;
+    private final byte[] data;
+    private final int size;
+
+    private FrontCodedStringSet(String[] blockHeads, int[] blockOffsets, byte[] data, int size) {
+        this.blockHeads = blockHeads;
+        this.blockOffsets = blockOffsets;
+        this.data = data;
+        this.size = size;
+    }
+
+    /**
+     * Writes the set in its front-coded form, see {@link #readFrom(ByteBuffer)}.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(blockHeads.length);
+        for (var i = 0; i < blockHeads.length; i++) {
+            var headBytes = blockHeads[i].getBytes(UTF_8);
+            out.writeInt(headBytes.length);
+            out.write(headBytes);
+            out.writeInt(blockOffsets[i]);
+        }
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an estimated size of the set in memory, in bytes.
+     */
+    public long estimateSize() {
+        long result = 64L + data.length + 4L * blockOffsets.length;
+        for (var blockHead : blockHeads) {
+            result += 8 + 56 + blockHead.length();
+        }
+        return result;
+    }
+
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        var cursor = new Cursor(index / BLOCK_SIZE);
+        for (var i = index % BLOCK_SIZE; i > 0; i--) {
+            cursor.next();
+        }
+        return cursor.current;
+    }
+
+    /**
+     * Returns the index of the string, or {@code -(insertion point) - 1} if there is no such string,
+     * like {@link java.util.Collections#binarySearch(List, Object)}.
+     */
+    public int indexOf(String string) {
+        var index = partitionPoint(it -> it.compareTo(string) < 0);
+        if (index < size && get(index).equals(string)) {
+            return index;
+        }
+        return -index - 1;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object object) {
+        return object instanceof String string && indexOf(string) >= 0;
+    }
+
+    /**
+     * Returns all strings that start with the {@code prefix}, as a sorted list view.
+     */
+    public List<String> startingWith(String prefix) {
+        var from = partitionPoint(it -> it.compareTo(prefix) < 0);
+        var to = partitionPoint(it -> it.compareTo(prefix) < 0 || it.startsWith(prefix));
+        return new RangeView(from, to);
+    }
+
+    /**
+     * Returns strings that are contained in both sets, sorted.
+     */
+    public List<String> intersection(FrontCodedStringSet other) {
+        var result = new ArrayList<String>();
+        var iterator = iterator();
+        var otherIterator = other.iterator();
+        if (!iterator.hasNext() || !otherIterator.hasNext()) {
+            return result;
+        }
+
+        var string = iterator.next();
+        var otherString = otherIterator.next();
+        while (true) {
+            var comparison = string.compareTo(otherString);
+            if (comparison == 0) {
+                result.add(string);
+            }
+            if (comparison <= 0) {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                string = iterator.next();
+            }
+            if (comparison >= 0) {
+                if (!otherIterator.hasNext()) {
+                    break;
+                }
+                otherString = otherIterator.next();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the first string that doesn't match the {@code predicate}.
+     * All strings matching the predicate must precede all strings not matching it.
+     */
+    private int partitionPoint(Predicate<String> predicate) {
+        var low = 0;
+        var high = blockHeads.length;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (predicate.test(blockHeads[middle])) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        // all the strings before the block `low` match, and the head of the block `low` doesn't
+        if (low == 0) {
+            return 0;
+        }
+        var block = low - 1;
+        var index = block * BLOCK_SIZE;
+        var cursor = new Cursor(block);
+        while (true) {
+            index++;
+            if (index == size || index % BLOCK_SIZE == 0) {
+                return index;
+            }
+            cursor.next();
+            if (!predicate.test(cursor.current)) {
+                return index;
+            }
+        }
+    }
+
+
+    @Override
+    public Iterator<String> iterator() {
+        return iterator(0, size);
+    }
+
+    private Iterator<String> iterator(int from, int to) {
+        return new Iterator<>() {
+            private int index = from;
+
+            @Nullable
+            private Cursor cursor;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public String next() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+
+                if (cursor == null) {
+                    cursor = new Cursor(index / BLOCK_SIZE);
+                    for (var i = index % BLOCK_SIZE; i > 0; i--) {
+                        cursor.next();
+                    }
+                } else if (index % BLOCK_SIZE == 0) {
+                    cursor = new Cursor(index / BLOCK_SIZE);
+                } else {
+                    cursor.next();
+                }
+                index++;
+                return cursor.current;
+            }
+        };
+    }
+
+    @Override
+    public SequencedSet<String> reversed() {
+        return Collections.unmodifiableSequencedSet(new LinkedHashSet<>(this)).reversed();
+    }
+
+    @Override
+    public String getFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return blockHeads[0];
+    }
+
+    @Override
+    public String getLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return get(size - 1);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+        if (other instanceof FrontCodedStringSet set) {
+            return size == set.size
+                && Arrays.equals(blockHeads, set.blockHeads)
+                && Arrays.equals(data, set.data);
+        }
+        return super.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+
+    private class Cursor {
+
+        String current;
+        int offset;
+
+        Cursor(int block) {
+            this.current = blockHeads[block];
+            this.offset = blockOffsets[block];
+        }
+
+        void next() {
+            var sharedLength = readVarInt();
+            var suffixLength = readVarInt();
+            current = current.substring(0, sharedLength) + new String(data, offset, suffixLength, UTF_8);
+            offset += suffixLength;
+        }
+
+        private int readVarInt() {
+            var result = 0;
+            for (var shift = 0; ; shift += 7) {
+                var b = data[offset++];
+                result |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+        }
+
+    }
+
+    private class RangeView extends AbstractList<String> {
+
+        private final int from;
+        private final int to;
+
+        RangeView(int from, int to) {
+            this.from = from;
+            this.to = Math.max(from, to);
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return FrontCodedStringSet.this.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return FrontCodedStringSet.this.iterator(from, to);
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package build.utils;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.Closeable;
+import java.util.concurrent.Semaphore;
+import lombok.SneakyThrows;
+import org.gradle.api.BuildCancelledException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.initialization.BuildCancellationToken;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Limits the number of nested Gradle builds run concurrently via the Tooling API.
+ *
+ * <p>A task takes a lease with {@link #acquire(BuildCancellationToken)} only around the nested build itself.
+ * The rest of the task (extracting and materializing files) isn't limited. Every nested build starts its own
+ * Gradle daemon, so the limit bounds both CPU and memory usage.
+ */
+public abstract class GradleBuildsService implements BuildService<GradleBuildsService.Parameters> {
+
+    public static final String NAME = "buildLogicGradleBuilds";
+
+    public interface Parameters extends BuildServiceParameters {
+
+        Property<Integer> getMaxConcurrentBuilds();
+
+    }
+
+
+    private static final long CANCELLATION_CHECK_INTERVAL_MILLIS = 100;
+
+    private final Semaphore permits = new Semaphore(Math.max(1, getParameters().getMaxConcurrentBuilds().get()));
+
+    /**
+     * Waits until a nested build can be started.
+     *
+     * @throws BuildCancelledException if the build is cancelled while waiting
+     */
+    @SneakyThrows
+    public GradleBuildLease acquire(@Nullable BuildCancellationToken cancellationToken) {
+        while (!permits.tryAcquire(CANCELLATION_CHECK_INTERVAL_MILLIS, MILLISECONDS)) {
+            if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
+                throw new BuildCancelledException();
+            }
+        }
+        return new GradleBuildLease(permits);
+    }
+
+
+    /**
+     * A lease on one of the concurrent nested builds. The permit is returned when the lease is closed.
+     */
+    public static class GradleBuildLease implements Closeable {
+
+        private final Semaphore permits;
+        private boolean released;
+
+        private GradleBuildLease(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            permits.release();
+        }
+
+    }
+
+}
@@ -0,0 +1,233 @@
+package build.utils;
+
+import static build.utils.BlobStore.materialize;
+import static build.utils.HashUtils.hashFile;
+import static build.utils.Utils.mapInParallel;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.list;
+import static java.nio.file.Files.readString;
+import static java.util.Comparator.comparing;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.ZipFile;
+import lombok.SneakyThrows;
+import org.gradle.api.BuildCancelledException;
+import org.gradle.initialization.BuildCancellationToken;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Finds local copies of Gradle {@code -all} distributions, so they don't have to be downloaded.
+ *
+ * <p>Unpacked installations are preferred, as they don't have to be unpacked again. They are looked up
+ * in the configured installation directories and in the {@code wrapper/dists} directory of the Gradle user home.
+ *
+ * <p>Distribution archives are looked up in the mirror directory, and in the {@code wrapper/dists} directory.
+ * If the mirror directory has a {@code gradle-<version>-all.zip.sha256} file, all archives are verified
+ * against it concurrently, and only a verified archive is used.
+ */
+public abstract class GradleDistributions {
+
+    /**
+     * Returns an unpacked {@code -all} installation of the Gradle version, or {@code null} if none is found.
+     */
+    @Nullable
+    public static Path findGradleInstallation(
+        String gradleVersion,
+        Collection<Path> installationDirs,
+        @Nullable Path wrapperDistsDir
+    ) {
+        for (var installationDir : installationDirs) {
+            if (isGradleInstallation(installationDir, gradleVersion)) {
+                return installationDir;
+            }
+        }
+
+        for (var wrapperDistDir : getWrapperDistDirs(gradleVersion, wrapperDistsDir)) {
+            // the wrapper creates the marker file after the distribution is fully unpacked
+            var markerFile = wrapperDistDir.resolve(getArchiveFileName(gradleVersion) + ".ok");
+            var installationDir = wrapperDistDir.resolve("gradle-" + gradleVersion);
+            if (isRegularFile(markerFile) && isGradleInstallation(installationDir, gradleVersion)) {
+                return installationDir;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns an {@code -all} distribution archive of the Gradle version, or {@code null} if none is found,
+     * or none of the found archives matches the expected checksum.
+     */
+    @Nullable
+    @SneakyThrows
+    public static Path findGradleDistributionArchive(
+        String gradleVersion,
+        @Nullable Path mirrorDir,
+        @Nullable Path wrapperDistsDir,
+        int parallelism,
+        @Nullable BuildCancellationToken cancellationToken
+    ) {
+        var archiveFileName = getArchiveFileName(gradleVersion);
+
+        var archives = new ArrayList<Path>();
+        if (mirrorDir != null) {
+            archives.add(mirrorDir.resolve(archiveFileName));
+        }
+        for (var wrapperDistDir : getWrapperDistDirs(gradleVersion, wrapperDistsDir)) {
+            archives.add(wrapperDistDir.resolve(archiveFileName));
+        }
+        archives.removeIf(archive -> !isRegularFile(archive));
+        if (archives.isEmpty()) {
+            return null;
+        }
+
+        var checksumFile = mirrorDir != null ? mirrorDir.resolve(archiveFileName + ".sha256") : null;
+        if (checksumFile == null || !isRegularFile(checksumFile)) {
+            return archives.getFirst();
+        }
+
+        var expectedHash = HashCode.fromString(readString(checksumFile, UTF_8).trim().split("\\s+")[0]);
+        var hashes = mapInParallel(
+            archives,
+            parallelism,
+            "gradle-distribution-checksum",
+            cancellationToken,
+            archive -> hashFile(archive, List.of(Hashing.sha256())).getFirst()
+        );
+        for (var i = 0; i < archives.size(); i++) {
+            if (hashes.get(i).equals(expectedHash)) {
+                return archives.get(i);
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Extracts {@code lib/} JAR files and creates the sources archive from an {@code -all} distribution archive,
+     * without running Gradle.
+     *
+     * <p>JAR files are materialized via {@link BlobStore}. The sources archive contains the content
+     * of all {@code src/<module>/} directories, with the modules in alphabetical order. If several modules
+     * have a file with the same path, the first one wins. Compressed entries are copied as-is,
+     * without inflating and deflating them again.
+     */
+    @SneakyThrows
+    public static void extractGradleDistributionArchive(
+        ZipFilesService zipFiles,
+        Path archive,
+        String gradleVersion,
+        Path libDir,
+        Path sourcesArchive,
+        int parallelism,
+        @Nullable BuildCancellationToken cancellationToken
+    ) {
+        var libPrefix = "gradle-" + gradleVersion + "/lib/";
+        var sourcesPrefix = "gradle-" + gradleVersion + "/src/";
+
+        try (var input = zipFiles.open(archive.toFile())) {
+            var index = input.getIndex();
+
+            var libEntryNames = new ArrayList<String>();
+            var sourceEntries = new ArrayList<SourceEntry>();
+            for (var i = 0; i < index.size(); i++) {
+                var name = index.getName(i);
+                if (index.isDirectory(i)) {
+                    continue;
+                }
+
+                if (name.startsWith(libPrefix) && name.endsWith(".jar")) {
+                    libEntryNames.add(name);
+
+                } else if (name.startsWith(sourcesPrefix)) {
+                    var moduleEnd = name.indexOf('/', sourcesPrefix.length());
+                    if (moduleEnd < 0) {
+                        continue; // not in a module directory
+                    }
+                    var module = name.substring(sourcesPrefix.length(), moduleEnd);
+                    sourceEntries.add(new SourceEntry(module, name.substring(moduleEnd + 1), i));
+                }
+            }
+
+            mapInParallel(
+                libEntryNames,
+                parallelism,
+                "gradle-distribution-lib",
+                cancellationToken,
+                name -> extractEntry(input.getZipFile(), name, libDir.resolve(name.substring(libPrefix.length())))
+            );
+
+            sourceEntries.sort(comparing(SourceEntry::module).thenComparing(SourceEntry::path));
+            createDirectories(sourcesArchive.toAbsolutePath().getParent());
+            try (var out = new ZipWriter(sourcesArchive)) {
+                for (var entry : sourceEntries) {
+                    if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
+                        throw new BuildCancelledException();
+                    }
+
+                    out.copyEntry(index, input.getChannel(), entry.index(), entry.path());
+                }
+
+                out.finish();
+            }
+        }
+    }
+
+    @SneakyThrows
+    private static Path extractEntry(ZipFile zipFile, String name, Path target) {
+        try (var in = zipFile.getInputStream(zipFile.getEntry(name))) {
+            materialize(in, target);
+        }
+        return target;
+    }
+
+    private record SourceEntry(
+        String module,
+        String path,
+        int index
+    ) {
+    }
+
+
+    private static String getArchiveFileName(String gradleVersion) {
+        return "gradle-" + gradleVersion + "-all.zip";
+    }
+
+    private static boolean isGradleInstallation(Path dir, String gradleVersion) {
+        return isRegularFile(dir.resolve("lib/gradle-launcher-" + gradleVersion + ".jar"))
+            && isDirectory(dir.resolve("src"));
+    }
+
+    /**
+     * Returns {@code wrapper/dists/gradle-<version>-all/<hash>} directories.
+     */
+    @SneakyThrows
+    private static List<Path> getWrapperDistDirs(String gradleVersion, @Nullable Path wrapperDistsDir) {
+        if (wrapperDistsDir == null) {
+            return List.of();
+        }
+
+        var distDir = wrapperDistsDir.resolve("gradle-" + gradleVersion + "-all");
+        if (!isDirectory(distDir)) {
+            return List.of();
+        }
+
+        try (var dirs = list(distDir)) {
+            return dirs
+                .filter(Files::isDirectory)
+                .sorted()
+                .toList();
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package build.utils;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+import lombok.SneakyThrows;
+
+public abstract class HashUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+
+    /**
+     * Calculates hashes of the file content, reading the file only once for all the hash functions.
+     *
+     * <p>The file is read sequentially, and every read buffer is passed to all the hashers in the calling thread.
+     * Files are hashed by parallel workers already, so no more threads are started here.
+     *
+     * @return hashes in the order of {@code hashFunctions}
+     */
+    @SneakyThrows
+    public static List<HashCode> hashFile(Path file, List<HashFunction> hashFunctions) {
+        try (var channel = FileChannel.open(file, READ)) {
+            var hashers = hashFunctions.stream().map(HashFunction::newHasher).toList();
+            var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer.clear()) >= 0) {
+                buffer.flip();
+                for (var hasher : hashers) {
+                    hasher.putBytes(buffer.duplicate());
+                }
+            }
+            return hashers.stream().map(Hasher::hash).toList();
+        }
+    }
+
+    /**
+     * Calculates hashes of in-memory content.
+     *
+     * @return hashes in the order of {@code hashFunctions}
+     */
+    public static List<HashCode> hashBytes(byte[] bytes, List<HashFunction> hashFunctions) {
+        return hashFunctions.stream()
+            .map(hashFunction -> hashFunction.hashBytes(bytes))
+            .toList();
+    }
+
+}
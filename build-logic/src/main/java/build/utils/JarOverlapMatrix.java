@@ -0,0 +1,294 @@
+package build.utils;
+
+import static build.utils.Utils.mapInParallel;
+import static build.utils.ZipUtils.getZipFileEntryNames;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.gradle.initialization.BuildCancellationToken;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A symmetric matrix that tells whether two JAR files have at least one file entry with the same name.
+ *
+ * <p>Only entries accepted by the entry filter are taken into account. Every entry name is represented by
+ * its 64-bit fingerprint, and fingerprints of every JAR file are kept in a sorted {@code long[]} array.
+ * Two JAR files are compared by merging their arrays, stopping at the first common fingerprint.
+ * A common fingerprint is verified by comparing the entry names, so hash collisions don't create overlaps.
+ * A JAR file overlaps with itself if it has any entries accepted by the filter.
+ *
+ * <p>Overlaps are calculated when the matrix is created: either for all pairs of JAR files,
+ * see {@link #createJarOverlapMatrix}, or only for the given pairs, see {@link #createJarPairsOverlapMatrix}.
+ * The second option is much cheaper if only a few of the N² pairs are checked.
+ */
+public class JarOverlapMatrix {
+
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.farmHashFingerprint64();
+
+
+    public record JarPair(File jar, File otherJar) {
+    }
+
+
+    public static JarOverlapMatrix createJarOverlapMatrix(
+        Collection<File> jars,
+        Predicate<String> entryFilter,
+        int parallelism,
+        @Nullable BuildCancellationToken cancellationToken
+    ) {
+        var jarList = toUniqueJars(jars.stream());
+        var columns = new ArrayList<BitSet>(jarList.size());
+        for (var row = 0; row < jarList.size(); row++) {
+            var rowColumns = new BitSet(jarList.size());
+            rowColumns.set(row, jarList.size());
+            columns.add(rowColumns);
+        }
+
+        var rows = calculateOverlaps(jarList, columns, entryFilter, parallelism, cancellationToken);
+        return new JarOverlapMatrix(jarList, rows, null);
+    }
+
+    /**
+     * Calculates overlaps only for the {@code pairs}.
+     * The created matrix throws {@link IllegalArgumentException} if any other pair is queried.
+     */
+    public static JarOverlapMatrix createJarPairsOverlapMatrix(
+        Collection<JarPair> pairs,
+        Predicate<String> entryFilter,
+        int parallelism,
+        @Nullable BuildCancellationToken cancellationToken
+    ) {
+        var jarList = toUniqueJars(pairs.stream().flatMap(pair -> Stream.of(pair.jar(), pair.otherJar())));
+        var jarIndexes = new HashMap<File, Integer>();
+        for (var i = 0; i < jarList.size(); i++) {
+            jarIndexes.put(jarList.get(i), i);
+        }
+
+        // only the upper triangle is calculated
+        var columns = new ArrayList<BitSet>(jarList.size());
+        for (var row = 0; row < jarList.size(); row++) {
+            columns.add(new BitSet(jarList.size()));
+        }
+        for (var pair : pairs) {
+            int index = jarIndexes.get(pair.jar().getAbsoluteFile());
+            int otherIndex = jarIndexes.get(pair.otherJar().getAbsoluteFile());
+            columns.get(Math.min(index, otherIndex)).set(Math.max(index, otherIndex));
+        }
+
+        var rows = calculateOverlaps(jarList, columns, entryFilter, parallelism, cancellationToken);
+        mirrorUpperTriangle(columns);
+        return new JarOverlapMatrix(jarList, rows, columns);
+    }
+
+    private static List<File> toUniqueJars(Stream<File> jars) {
+        var uniqueJars = new LinkedHashSet<File>();
+        jars.forEach(jar -> uniqueJars.add(jar.getAbsoluteFile()));
+        return List.copyOf(uniqueJars);
+    }
+
+    /**
+     * @param columns columns to calculate for every row, all of them not less than the row
+     */
+    private static List<BitSet> calculateOverlaps(
+        List<File> jarList,
+        List<BitSet> columns,
+        Predicate<String> entryFilter,
+        int parallelism,
+        @Nullable BuildCancellationToken cancellationToken
+    ) {
+        var fingerprints = mapInParallel(
+            jarList,
+            parallelism,
+            "jar-fingerprints",
+            cancellationToken,
+            jar -> JarFingerprints.of(jar, entryFilter)
+        );
+
+        var rowIndexes = IntStream.range(0, jarList.size()).boxed().toList();
+        var rows = mapInParallel(
+            rowIndexes,
+            parallelism,
+            "jar-overlaps",
+            cancellationToken,
+            row -> {
+                var overlaps = new BitSet(jarList.size());
+                var rowColumns = columns.get(row);
+                for (var column = rowColumns.nextSetBit(0); column >= 0; column = rowColumns.nextSetBit(column + 1)) {
+                    if (column == row) {
+                        overlaps.set(row, fingerprints.get(row).fingerprints().length > 0);
+                    } else if (fingerprints.get(row).overlaps(fingerprints.get(column))) {
+                        overlaps.set(column);
+                    }
+                }
+                return overlaps;
+            }
+        );
+
+        mirrorUpperTriangle(rows);
+        return rows;
+    }
+
+    private static void mirrorUpperTriangle(List<BitSet> rows) {
+        for (var row = 0; row < rows.size(); row++) {
+            var bits = rows.get(row);
+            for (var column = bits.nextSetBit(row + 1); column >= 0; column = bits.nextSetBit(column + 1)) {
+                rows.get(column).set(row);
+            }
+        }
+    }
+
+
+    private final Map<File, Integer> jarIndexes = new HashMap<>();
+    private final List<File> jars;
+    private final List<BitSet> rows;
+
+    /**
+     * Pairs with calculated overlaps, {@code null} if all the pairs have been calculated.
+     */
+    @Nullable
+    private final List<BitSet> calculated;
+
+    private JarOverlapMatrix(List<File> jars, List<BitSet> rows, @Nullable List<BitSet> calculated) {
+        this.jars = jars;
+        this.rows = rows;
+        this.calculated = calculated;
+        for (var i = 0; i < jars.size(); i++) {
+            jarIndexes.put(jars.get(i), i);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if any of the files is not a part of the matrix,
+     * or if the overlap of the files hasn't been calculated
+     */
+    public boolean overlaps(File jar, File otherJar) {
+        var index = indexOf(jar);
+        var otherIndex = indexOf(otherJar);
+        if (calculated != null && !calculated.get(index).get(otherIndex)) {
+            throw new IllegalArgumentException("Overlap of JAR files hasn't been calculated: " + jar + ", " + otherJar);
+        }
+        return rows.get(index).get(otherIndex);
+    }
+
+    /**
+     * Returns all JAR files that overlap with the {@code jar}, in the order they were passed to the matrix.
+     * If the matrix has been created for pairs, only the pairs with the {@code jar} are taken into account.
+     *
+     * @throws IllegalArgumentException if the file is not a part of the matrix
+     */
+    public List<File> getOverlappingJars(File jar) {
+        var overlaps = rows.get(indexOf(jar));
+        var result = new ArrayList<File>(overlaps.cardinality());
+        overlaps.stream().forEach(index -> result.add(jars.get(index)));
+        return result;
+    }
+
+    private int indexOf(File jar) {
+        var index = jarIndexes.get(jar.getAbsoluteFile());
+        if (index == null) {
+            throw new IllegalArgumentException("JAR file is not a part of the overlap matrix: " + jar);
+        }
+        return index;
+    }
+
+
+    /**
+     * @param fingerprints sorted fingerprints of the entry names
+     * @param nameIndexes indexes of the entry names in {@code names}, in the order of {@code fingerprints}
+     */
+    private record JarFingerprints(
+        FrontCodedStringSet names,
+        long[] fingerprints,
+        int[] nameIndexes
+    ) {
+
+        static JarFingerprints of(File jar, Predicate<String> entryFilter) {
+            var names = getZipFileEntryNames(jar);
+            var fingerprints = new long[names.size()];
+            var nameIndexes = new int[names.size()];
+            var count = 0;
+            var nameIndex = 0;
+            for (var name : names) {
+                if (entryFilter.test(name)) {
+                    fingerprints[count] = FINGERPRINT_FUNCTION.hashString(name, UTF_8).asLong();
+                    nameIndexes[count] = nameIndex;
+                    count++;
+                }
+                nameIndex++;
+            }
+
+            // sort fingerprints together with the name indexes
+            var order = IntStream.range(0, count).boxed()
+                .sorted((i1, i2) -> Long.compare(fingerprints[i1], fingerprints[i2]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+            var sortedFingerprints = new long[count];
+            var sortedNameIndexes = new int[count];
+            for (var i = 0; i < count; i++) {
+                sortedFingerprints[i] = fingerprints[order[i]];
+                sortedNameIndexes[i] = nameIndexes[order[i]];
+            }
+
+            return new JarFingerprints(names, sortedFingerprints, sortedNameIndexes);
+        }
+
+        boolean overlaps(JarFingerprints other) {
+            if (fingerprints.length == 0
+                || other.fingerprints.length == 0
+                || fingerprints[fingerprints.length - 1] < other.fingerprints[0]
+                || other.fingerprints[other.fingerprints.length - 1] < fingerprints[0]
+            ) {
+                return false;
+            }
+
+            var i = 0;
+            var j = 0;
+            while (i < fingerprints.length && j < other.fingerprints.length) {
+                var fingerprint = fingerprints[i];
+                var otherFingerprint = other.fingerprints[j];
+                if (fingerprint < otherFingerprint) {
+                    i++;
+                } else if (fingerprint > otherFingerprint) {
+                    j++;
+                } else {
+                    if (hasSameName(i, other, j)) {
+                        return true;
+                    }
+                    i++;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Compares the name at {@code index} with all the names of the {@code other} JAR file
+         * that have the same fingerprint, starting from {@code otherIndex}.
+         */
+        private boolean hasSameName(int index, JarFingerprints other, int otherIndex) {
+            var name = names.get(nameIndexes[index]);
+            for (var j = otherIndex;
+                 j < other.fingerprints.length && other.fingerprints[j] == fingerprints[index];
+                 j++
+            ) {
+                if (other.names.get(other.nameIndexes[j]).equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
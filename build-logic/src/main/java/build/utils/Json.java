@@ -23,7 +23,15 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonFactoryBuilder;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.cfg.MapperBuilder;
 import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 
 public abstract class Json {
 
@@ -35,24 +43,80 @@ public abstract class Json {
         .enable(ALLOW_TRAILING_COMMA)
         .build();
 
-    private static final JsonMapper JSON_MAPPER = JsonMapper.builder(JSON_FACTORY)
-        .findAndAddModules()
-        .addModule(new JsonHooksModule())
-        .enable(FAIL_ON_UNKNOWN_PROPERTIES)
-        .enable(FAIL_ON_NULL_FOR_PRIMITIVES)
-        .enable(FAIL_ON_NUMBERS_FOR_ENUMS)
-        .enable(FAIL_ON_IGNORED_PROPERTIES)
-        .disable(FAIL_ON_TRAILING_TOKENS)
+    private static final JsonMapper JSON_MAPPER = configure(JsonMapper.builder(JSON_FACTORY))
         .enable(INDENT_OUTPUT)
-        .disable(WRITE_DATES_AS_TIMESTAMPS)
-        .enable(WRITE_DATES_WITH_ZONE_ID)
-        .disable(WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS)
-        .disable(SORT_PROPERTIES_ALPHABETICALLY)
-        .disable(ORDER_MAP_ENTRIES_BY_KEYS)
-        .defaultPropertyInclusion(JsonInclude.Value.construct(NON_EMPTY, NON_EMPTY))
         .build();
 
+    private static final SmileFactory SMILE_FACTORY = SmileFactory.builder()
+        .enable(SmileGenerator.Feature.WRITE_HEADER)
+        .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+        .build();
+
+    private static final SmileMapper SMILE_MAPPER = configure(SmileMapper.builder(SMILE_FACTORY))
+        .build();
+
+    private static <B extends MapperBuilder<?, B>> B configure(B builder) {
+        return builder
+            .findAndAddModules()
+            .addModule(new JsonHooksModule())
+            .enable(FAIL_ON_UNKNOWN_PROPERTIES)
+            .enable(FAIL_ON_NULL_FOR_PRIMITIVES)
+            .enable(FAIL_ON_NUMBERS_FOR_ENUMS)
+            .enable(FAIL_ON_IGNORED_PROPERTIES)
+            .disable(FAIL_ON_TRAILING_TOKENS)
+            .disable(WRITE_DATES_AS_TIMESTAMPS)
+            .enable(WRITE_DATES_WITH_ZONE_ID)
+            .disable(WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS)
+            .disable(SORT_PROPERTIES_ALPHABETICALLY)
+            .disable(ORDER_MAP_ENTRIES_BY_KEYS)
+            .defaultPropertyInclusion(JsonInclude.Value.construct(NON_EMPTY, NON_EMPTY));
+    }
+
     public static final ObjectReader JSON_READER = JSON_MAPPER.reader();
     public static final ObjectWriter JSON_WRITER = JSON_MAPPER.writer();
 
+    public static final ObjectReader SMILE_READER = SMILE_MAPPER.reader();
+    public static final ObjectWriter SMILE_WRITER = SMILE_MAPPER.writer();
+
+
+    public static ObjectWriter getWriter(DataFormat format) {
+        return switch (format) {
+            case JSON -> JSON_WRITER;
+            case SMILE -> SMILE_WRITER;
+        };
+    }
+
+    public static void writeValue(File file, DataFormat format, Object value) throws IOException {
+        getWriter(format).writeValue(file, value);
+    }
+
+    /**
+     * Reads a file written in any {@link DataFormat}. The format is detected by the Smile header.
+     */
+    public static <T> T readValue(File file, Class<T> type) throws IOException {
+        return getReader(detectFormat(file)).readValue(file, type);
+    }
+
+    private static ObjectReader getReader(DataFormat format) {
+        return switch (format) {
+            case JSON -> JSON_READER;
+            case SMILE -> SMILE_READER;
+        };
+    }
+
+    private static DataFormat detectFormat(File file) throws IOException {
+        var header = new byte[3];
+        try (var in = Files.newInputStream(file.toPath())) {
+            if (in.readNBytes(header, 0, header.length) == header.length
+                && header[0] == SmileConstants.HEADER_BYTE_1
+                && header[1] == SmileConstants.HEADER_BYTE_2
+                && header[2] == SmileConstants.HEADER_BYTE_3
+            ) {
+                return DataFormat.SMILE;
+            }
+        }
+        return DataFormat.JSON;
+    }
+
 }
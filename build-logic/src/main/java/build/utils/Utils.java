@@ -3,26 +3,31 @@ package build.utils;
 import static build.Constants.FALLBACK_JAVA_VERSION;
 import static build.Constants.MIN_GRADLE_VERSION_TO_JAVA_VERSION;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.exists;
-import static java.nio.file.Files.newOutputStream;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.jar.Attributes.Name.MANIFEST_VERSION;
 import static java.util.jar.JarFile.MANIFEST_NAME;
-import static java.util.zip.Deflater.DEFLATED;
 
 import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 import lombok.SneakyThrows;
 import org.gradle.api.BuildCancelledException;
 import org.gradle.api.file.FileSystemLocation;
@@ -54,9 +59,9 @@ public abstract class Utils {
                 if (attempt >= DELETE_ATTEMPTS) {
                     throw exception;
                 } else {
-                    // If we have some file descriptor leak, calling GC can help us, as it can execute finalizers
-                    // which close file descriptors.
-                    System.gc();
+                    // ZIP files of this build are closed deterministically by ZipFilesService. But other processes,
+                    // like a nested Gradle daemon that has just finished or a virus scanner, can still hold files
+                    // open for a moment, which prevents deleting them on Windows.
                     Thread.sleep(100L * attempt);
                 }
             }
@@ -99,6 +104,21 @@ public abstract class Utils {
     }
 
 
+    /**
+     * Returns the Gradle user home directory of the current process, without access to Gradle services.
+     */
+    public static Path getGradleUserHomeDir() {
+        var gradleUserHome = System.getProperty("gradle.user.home");
+        if (gradleUserHome == null || gradleUserHome.isEmpty()) {
+            gradleUserHome = System.getenv("GRADLE_USER_HOME");
+        }
+        if (gradleUserHome == null || gradleUserHome.isEmpty()) {
+            return Paths.get(System.getProperty("user.home"), ".gradle");
+        }
+        return Paths.get(gradleUserHome);
+    }
+
+
     public static JavaLanguageVersion getGradleJvmVersion(GradleVersion gradleVersion) {
         gradleVersion = gradleVersion.getBaseVersion();
 
@@ -166,12 +186,14 @@ public abstract class Utils {
 
 
     public static void copyJarEntries(
+        ZipFilesService zipFiles,
         File inFile,
         File outFile,
         Collection<String> entryNames,
         @Nullable BuildCancellationToken cancellationToken
     ) {
         copyZipEntries(
+            zipFiles,
             inFile,
             outFile,
             entryNames,
@@ -182,6 +204,7 @@ public abstract class Utils {
 
     @SneakyThrows
     private static void copyZipEntries(
+        ZipFilesService zipFiles,
         File inFile,
         File outFile,
         Collection<String> entryNames,
@@ -191,40 +214,110 @@ public abstract class Utils {
         createDirectories(outFile.toPath().getParent());
 
         try (
-            var inputZipFile = new ZipFile(inFile, UTF_8);
-            var out = new ZipOutputStream(newOutputStream(outFile.toPath()), UTF_8)
+            var input = zipFiles.open(inFile);
+            var out = new ZipWriter(outFile.toPath())
         ) {
-            out.setMethod(DEFLATED);
-            out.setLevel(9);
+            var inputIndex = input.getIndex();
+            var inputChannel = input.getChannel();
             for (var name : entryNames) {
                 if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
                     throw new BuildCancelledException();
                 }
 
-                var inputEntry = inputZipFile.getEntry(name);
-                if (inputEntry == null) {
+                var inputEntryIndex = inputIndex.indexOf(name);
+                if (inputEntryIndex < 0) {
                     continue;
                 }
 
-                var outputEntry = new ZipEntry(inputEntry);
-                out.putNextEntry(outputEntry);
-                if (!inputEntry.isDirectory()) {
-                    try (var in = inputZipFile.getInputStream(inputEntry)) {
-                        in.transferTo(out);
-                    }
-                }
-                out.closeEntry();
+                out.copyEntry(inputIndex, inputChannel, inputEntryIndex);
             }
 
-            if (addManifest && !entryNames.contains(MANIFEST_NAME)) {
+            if (addManifest && !out.hasEntry(MANIFEST_NAME)) {
                 var manifest = new Manifest();
                 manifest.getMainAttributes().put(MANIFEST_VERSION, "1.0");
-                out.putNextEntry(new ZipEntry(MANIFEST_NAME));
-                manifest.write(out);
-                out.closeEntry();
+                var manifestContent = new ByteArrayOutputStream();
+                manifest.write(manifestContent);
+                out.putEntry(MANIFEST_NAME, manifestContent.toByteArray(), DEFAULT_DOS_TIME);
+            }
+
+            out.finish();
+        }
+
+    }
+
+    /**
+     * 1980-01-01 00:00, the earliest time that can be represented in a ZIP archive.
+     */
+    private static final int DEFAULT_DOS_TIME = (1 << 21) | (1 << 16);
+
+
+    /**
+     * Applies {@code action} to every element of {@code elements} using up to {@code parallelism} threads.
+     *
+     * <p>The results are returned in the order of {@code elements}, regardless of the order in which they were
+     * computed. The first failure cancels all the remaining work and is rethrown as soon as it happens,
+     * even if actions of preceding elements are still running.
+     */
+    @SneakyThrows
+    public static <T, R> List<R> mapInParallel(
+        Collection<? extends T> elements,
+        int parallelism,
+        String threadNamePrefix,
+        @Nullable BuildCancellationToken cancellationToken,
+        Function<? super T, ? extends R> action
+    ) {
+        if (parallelism <= 1 || elements.size() <= 1) {
+            var results = new ArrayList<R>(elements.size());
+            for (var element : elements) {
+                if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
+                    throw new BuildCancelledException();
+                }
+                results.add(action.apply(element));
             }
+            return results;
         }
 
+        var executor = Executors.newFixedThreadPool(
+            Math.min(parallelism, elements.size()),
+            new ThreadFactoryBuilder()
+                .setNameFormat(threadNamePrefix + "-%d")
+                .setDaemon(true)
+                .build()
+        );
+        try {
+            var completionService = new ExecutorCompletionService<R>(executor);
+            var futures = new ArrayList<Future<R>>(elements.size());
+            for (var element : elements) {
+                futures.add(completionService.submit(() -> {
+                    if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
+                        throw new BuildCancelledException();
+                    }
+                    return action.apply(element);
+                }));
+            }
+
+            // futures are awaited in the order of completion, so the first failure is rethrown immediately
+            for (var i = 0; i < futures.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    futures.forEach(it -> it.cancel(true));
+                    throw e.getCause() != null ? e.getCause() : e;
+                }
+            }
+
+            var results = new ArrayList<R>(elements.size());
+            for (var future : futures) {
+                results.add(future.resultNow());
+            }
+            return results;
+
+        } finally {
+            executor.shutdownNow();
+            while (!executor.awaitTermination(1, SECONDS)) {
+                // wait for running actions to react to interruption or cancellation
+            }
+        }
     }
 
 
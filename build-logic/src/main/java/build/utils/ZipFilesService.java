@@ -0,0 +1,245 @@
+package build.utils;
+
+import static build.utils.ZipIndex.readZipIndex;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.zip.ZipFile;
+import lombok.SneakyThrows;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A build-scoped pool of open ZIP files.
+ *
+ * <p>{@link #open(File)} returns a lease on a pooled file. Every pooled file lazily opens its {@link ZipIndex}
+ * and {@link ZipFile}, and keeps them open while it stays in the pool. Both can be used by several threads
+ * concurrently. {@link ZipFileLease#getChannel()} opens a {@link FileChannel} per lease, as an interrupted read
+ * closes the channel, which must not break other readers of the same file.
+ *
+ * <p>At most {@link Parameters#getMaxOpenFiles()} files are kept in the pool. The least recently used file
+ * is evicted when the limit is exceeded, and is closed as soon as all its leases are released.
+ * All the files are closed at the end of the build.
+ *
+ * <p>Only files that aren't written during the build should be opened via the pool. Otherwise, the open file
+ * could prevent it from being rewritten or deleted on Windows.
+ */
+public abstract class ZipFilesService implements BuildService<ZipFilesService.Parameters>, AutoCloseable {
+
+    public static final String NAME = "buildLogicZipFiles";
+
+    public interface Parameters extends BuildServiceParameters {
+
+        Property<Integer> getMaxOpenFiles();
+
+    }
+
+
+    private final LinkedHashMap<PooledZipFileKey, PooledZipFile> pool = new LinkedHashMap<>(16, 0.75f, true);
+
+    private boolean closed;
+
+    public synchronized ZipFileLease open(File file) {
+        if (closed) {
+            throw new IllegalStateException("ZIP files service has already been closed");
+        }
+
+        var key = PooledZipFileKey.of(file);
+        var pooled = pool.get(key);
+        if (pooled == null) {
+            pooled = new PooledZipFile(key.file());
+            pool.put(key, pooled);
+            evictExcessFiles();
+        }
+
+        pooled.leases++;
+        return new ZipFileLease(this, pooled);
+    }
+
+    private void evictExcessFiles() {
+        var maxOpenFiles = Math.max(1, getParameters().getMaxOpenFiles().getOrElse(DEFAULT_MAX_OPEN_FILES));
+        var iterator = pool.values().iterator();
+        while (pool.size() > maxOpenFiles && iterator.hasNext()) {
+            var pooled = iterator.next();
+            iterator.remove();
+            pooled.evicted = true;
+            if (pooled.leases == 0) {
+                pooled.close();
+            }
+        }
+    }
+
+    private static final int DEFAULT_MAX_OPEN_FILES = 64;
+
+    private synchronized void release(PooledZipFile pooled) {
+        pooled.leases--;
+        if (pooled.leases == 0 && (pooled.evicted || closed)) {
+            pooled.close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+
+        var pooledFiles = new ArrayList<>(pool.values());
+        pool.clear();
+        for (var pooled : pooledFiles) {
+            pooled.evicted = true;
+            if (pooled.leases == 0) {
+                pooled.close();
+            }
+        }
+    }
+
+
+    /**
+     * A lease on a pooled ZIP file. The file stays open at least until the lease is closed.
+     */
+    public static class ZipFileLease implements Closeable {
+
+        private final ZipFilesService service;
+        private final PooledZipFile pooled;
+
+        @Nullable
+        private FileChannel channel;
+
+        private boolean released;
+
+        private ZipFileLease(ZipFilesService service, PooledZipFile pooled) {
+            this.service = service;
+            this.pooled = pooled;
+        }
+
+        public File getFile() {
+            return pooled.file;
+        }
+
+        public ZipIndex getIndex() {
+            return pooled.getIndex();
+        }
+
+        public ZipFile getZipFile() {
+            return pooled.getZipFile();
+        }
+
+        /**
+         * Returns a channel owned by this lease. It's closed together with the lease.
+         *
+         * <p>A channel is closed if a thread reading it is interrupted, for example, on build cancellation.
+         * In this case, a new channel is opened by the next call.
+         */
+        @SneakyThrows
+        public synchronized FileChannel getChannel() {
+            if (released) {
+                throw new IllegalStateException("ZIP file lease has already been released: " + pooled.file);
+            }
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(pooled.file.toPath(), READ);
+            }
+            return channel;
+        }
+
+        @Override
+        @SneakyThrows
+        public synchronized void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+            } finally {
+                service.release(pooled);
+            }
+        }
+
+    }
+
+
+    /**
+     * The file is a part of the key together with its size and modification time,
+     * so a file rewritten in place is opened again.
+     */
+    private record PooledZipFileKey(
+        File file,
+        long length,
+        long lastModified
+    ) {
+
+        static PooledZipFileKey of(File file) {
+            file = file.getAbsoluteFile();
+            return new PooledZipFileKey(file, file.length(), file.lastModified());
+        }
+
+    }
+
+    private static class PooledZipFile {
+
+        private final File file;
+
+        // guarded by the service:
+        private int leases;
+        private boolean evicted;
+
+        @Nullable
+        private ZipIndex index;
+
+        @Nullable
+        private ZipFile zipFile;
+
+        private boolean closed;
+
+        PooledZipFile(File file) {
+            this.file = file;
+        }
+
+        synchronized ZipIndex getIndex() {
+            if (index == null) {
+                index = readZipIndex(file);
+            }
+            return index;
+        }
+
+        @SneakyThrows
+        synchronized ZipFile getZipFile() {
+            checkNotClosed();
+            if (zipFile == null) {
+                zipFile = new ZipFile(file, UTF_8);
+            }
+            return zipFile;
+        }
+
+        private void checkNotClosed() {
+            if (closed) {
+                throw new IllegalStateException("ZIP file has already been closed: " + file);
+            }
+        }
+
+        @SneakyThrows
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (zipFile != null) {
+                zipFile.close();
+                zipFile = null;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,428 @@
+package build.utils;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A compact in-memory index of a ZIP archive central directory.
+ *
+ * <p>The central directory is read via a memory-mapped region of the file and decoded directly
+ * into parallel primitive arrays. Nothing is inflated while the index is built,
+ * and no {@link java.util.zip.ZipFile} or {@link java.util.zip.ZipEntry} objects are created.
+ *
+ * <p>The mapped regions are released as soon as the index is built.
+ */
+public class ZipIndex {
+
+    static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    static final int LOCAL_FILE_HEADER_SIZE = 30;
+    static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+    static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+    static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATED = 8;
+
+    static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+
+    static final byte[] NO_EXTRA_FIELDS = new byte[0];
+
+
+    public static ZipIndex readZipIndex(File file) {
+        return readZipIndex(file.toPath());
+    }
+
+    public static ZipIndex readZipIndex(Path file) {
+        return readCentralDirectory(file, (entriesCount, cd, archiveStart) ->
+            new ZipIndex(file, entriesCount, cd, archiveStart)
+        );
+    }
+
+    /**
+     * Calculates SHA-256 hash of the raw central directory bytes. The central directory includes names, sizes and
+     * CRC32 of all the entries, so it identifies the archive content without reading the entries.
+     */
+    public static HashCode hashCentralDirectory(Path file) {
+        return readCentralDirectory(file, (entriesCount, cd, archiveStart) ->
+            Hashing.sha256().newHasher()
+                .putInt(entriesCount)
+                .putBytes(cd)
+                .hash()
+        );
+    }
+
+    @FunctionalInterface
+    private interface CentralDirectoryReader<T> {
+        T read(int entriesCount, ByteBuffer cd, long archiveStart) throws Exception;
+    }
+
+    @SneakyThrows
+    private static <T> T readCentralDirectory(Path file, CentralDirectoryReader<T> reader) {
+        try (
+            var channel = FileChannel.open(file, READ);
+            var arena = Arena.ofConfined()
+        ) {
+            var fileSize = channel.size();
+            var tailSize = min(
+                fileSize,
+                MAX_COMMENT_LENGTH + END_OF_CENTRAL_DIRECTORY_SIZE + ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE
+            );
+            var tailOffset = fileSize - tailSize;
+            var tail = channel.map(READ_ONLY, tailOffset, tailSize, arena).asByteBuffer().order(LITTLE_ENDIAN);
+
+            var eocdPos = findEndOfCentralDirectory(tail);
+            if (eocdPos < 0) {
+                throw new ZipException("End of central directory record not found: " + file);
+            }
+
+            long entriesCount = Short.toUnsignedInt(tail.getShort(eocdPos + 10));
+            long cdSize = Integer.toUnsignedLong(tail.getInt(eocdPos + 12));
+            long cdOffset = Integer.toUnsignedLong(tail.getInt(eocdPos + 16));
+            var cdEnd = tailOffset + eocdPos;
+
+            var locatorPos = eocdPos - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+            if (locatorPos >= 0 && tail.getInt(locatorPos) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+                var zip64EocdOffset = tail.getLong(locatorPos + 8);
+                var zip64Eocd = channel.map(READ_ONLY, zip64EocdOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE, arena)
+                    .asByteBuffer()
+                    .order(LITTLE_ENDIAN);
+                if (zip64Eocd.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new ZipException("Invalid ZIP64 end of central directory record: " + file);
+                }
+                entriesCount = zip64Eocd.getLong(32);
+                cdSize = zip64Eocd.getLong(40);
+                cdOffset = zip64Eocd.getLong(48);
+                cdEnd = zip64EocdOffset;
+            }
+
+            if (entriesCount > Integer.MAX_VALUE - 8 || cdSize > Integer.MAX_VALUE) {
+                throw new ZipException("Too many entries in ZIP file: " + file);
+            }
+
+            // Data can be prepended to a ZIP archive (self-extracting archives, for example),
+            // so the actual offsets are calculated relative to the position of the central directory
+            var cdStart = cdEnd - cdSize;
+            if (cdStart < 0) {
+                throw new ZipException("Invalid central directory offset: " + file);
+            }
+            var archiveStart = cdStart - cdOffset;
+
+            var cd = channel.map(READ_ONLY, cdStart, cdSize, arena).asByteBuffer().order(LITTLE_ENDIAN);
+            return reader.read((int) entriesCount, cd, archiveStart);
+        }
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer tail) {
+        var minPos = max(0, tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_LENGTH);
+        for (var pos = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; pos >= minPos; pos--) {
+            if (tail.getInt(pos) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                var commentLength = Short.toUnsignedInt(tail.getShort(pos + 20));
+                if (pos + END_OF_CENTRAL_DIRECTORY_SIZE + commentLength <= tail.limit()) {
+                    return pos;
+                }
+            }
+        }
+        return -1;
+    }
+
+
+    private final Path file;
+    private final String[] names;
+    private final int[] crcs;
+    private final long[] compressedSizes;
+    private final long[] sizes;
+    private final short[] methods;
+    private final int[] dosTimes;
+    private final long[] localHeaderOffsets;
+    private final byte[][] extraFields;
+
+    private ZipIndex(Path file, int entriesCount, ByteBuffer cd, long archiveStart) throws ZipException {
+        this.file = file;
+        this.names = new String[entriesCount];
+        this.crcs = new int[entriesCount];
+        this.compressedSizes = new long[entriesCount];
+        this.sizes = new long[entriesCount];
+        this.methods = new short[entriesCount];
+        this.dosTimes = new int[entriesCount];
+        this.localHeaderOffsets = new long[entriesCount];
+        this.extraFields = new byte[entriesCount][];
+
+        var nameBytes = new byte[256];
+        var pos = 0;
+        for (var i = 0; i < entriesCount; i++) {
+            if (pos + CENTRAL_DIRECTORY_HEADER_SIZE > cd.limit()
+                || cd.getInt(pos) != CENTRAL_DIRECTORY_HEADER_SIGNATURE
+            ) {
+                throw new ZipException("Invalid central directory header at entry #" + i + ": " + file);
+            }
+
+            methods[i] = cd.getShort(pos + 10);
+            dosTimes[i] = cd.getInt(pos + 12);
+            crcs[i] = cd.getInt(pos + 16);
+            var compressedSize = Integer.toUnsignedLong(cd.getInt(pos + 20));
+            var size = Integer.toUnsignedLong(cd.getInt(pos + 24));
+            var nameLength = Short.toUnsignedInt(cd.getShort(pos + 28));
+            var extraLength = Short.toUnsignedInt(cd.getShort(pos + 30));
+            var commentLength = Short.toUnsignedInt(cd.getShort(pos + 32));
+            var localHeaderOffset = Integer.toUnsignedLong(cd.getInt(pos + 42));
+            var headerEnd = (long) pos + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+            if (headerEnd > cd.limit()) {
+                throw new ZipException("Truncated central directory header at entry #" + i + ": " + file);
+            }
+
+            if (nameBytes.length < nameLength) {
+                nameBytes = new byte[nameLength];
+            }
+            cd.get(pos + CENTRAL_DIRECTORY_HEADER_SIZE, nameBytes, 0, nameLength);
+            names[i] = new String(nameBytes, 0, nameLength, UTF_8);
+            extraFields[i] = readExtraFields(cd, pos + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength, extraLength);
+
+            if (size == ZIP64_MAGIC_VALUE
+                || compressedSize == ZIP64_MAGIC_VALUE
+                || localHeaderOffset == ZIP64_MAGIC_VALUE
+            ) {
+                var extraPos = pos + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength;
+                var extraEnd = extraPos + extraLength;
+                while (extraPos + 4 <= extraEnd) {
+                    var id = Short.toUnsignedInt(cd.getShort(extraPos));
+                    var length = Short.toUnsignedInt(cd.getShort(extraPos + 2));
+                    if (id == ZIP64_EXTRA_FIELD_ID) {
+                        var requiredLength = (size == ZIP64_MAGIC_VALUE ? 8 : 0)
+                            + (compressedSize == ZIP64_MAGIC_VALUE ? 8 : 0)
+                            + (localHeaderOffset == ZIP64_MAGIC_VALUE ? 8 : 0);
+                        if (length < requiredLength || extraPos + 4 + length > extraEnd) {
+                            throw new ZipException("Invalid ZIP64 extra field at entry #" + i + ": " + file);
+                        }
+                        var valuePos = extraPos + 4;
+                        if (size == ZIP64_MAGIC_VALUE) {
+                            size = cd.getLong(valuePos);
+                            valuePos += 8;
+                        }
+                        if (compressedSize == ZIP64_MAGIC_VALUE) {
+                            compressedSize = cd.getLong(valuePos);
+                            valuePos += 8;
+                        }
+                        if (localHeaderOffset == ZIP64_MAGIC_VALUE) {
+                            localHeaderOffset = cd.getLong(valuePos);
+                        }
+                        break;
+                    }
+                    extraPos += 4 + length;
+                }
+            }
+
+            compressedSizes[i] = compressedSize;
+            sizes[i] = size;
+            localHeaderOffsets[i] = archiveStart + localHeaderOffset;
+
+            pos = (int) headerEnd;
+        }
+    }
+
+
+    /**
+     * Returns the extra fields of the central directory header, except the ZIP64 extended information field,
+     * as the sizes and the offset are stored in it only if needed.
+     */
+    private static byte[] readExtraFields(ByteBuffer cd, int extraPos, int extraLength) {
+        if (extraLength == 0) {
+            return NO_EXTRA_FIELDS;
+        }
+
+        var result = new byte[extraLength];
+        var resultLength = 0;
+        var extraEnd = extraPos + extraLength;
+        while (extraPos + 4 <= extraEnd) {
+            var id = Short.toUnsignedInt(cd.getShort(extraPos));
+            var fieldLength = 4 + Short.toUnsignedInt(cd.getShort(extraPos + 2));
+            if (extraPos + fieldLength > extraEnd) {
+                break; // a truncated trailing field is dropped
+            }
+            if (id != ZIP64_EXTRA_FIELD_ID) {
+                cd.get(extraPos, result, resultLength, fieldLength);
+                resultLength += fieldLength;
+            }
+            extraPos += fieldLength;
+        }
+
+        if (resultLength == 0) {
+            return NO_EXTRA_FIELDS;
+        }
+        return resultLength == extraLength ? result : Arrays.copyOf(result, resultLength);
+    }
+
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public boolean isDirectory(int index) {
+        return names[index].endsWith("/");
+    }
+
+    public int getCrc(int index) {
+        return crcs[index];
+    }
+
+    public long getCompressedSize(int index) {
+        return compressedSizes[index];
+    }
+
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public int getMethod(int index) {
+        return Short.toUnsignedInt(methods[index]);
+    }
+
+    /**
+     * Returns MS-DOS time (lower 16 bits) and date (upper 16 bits) of the entry, as stored in the archive.
+     */
+    public int getDosTime(int index) {
+        return dosTimes[index];
+    }
+
+    public long getLocalHeaderOffset(int index) {
+        return localHeaderOffsets[index];
+    }
+
+    /**
+     * Returns the extra fields of the entry's central directory header, without the ZIP64 extended information
+     * field. The returned array is shared and must not be modified.
+     */
+    byte[] getExtraFields(int index) {
+        return extraFields[index];
+    }
+
+
+    @Nullable
+    private volatile Map<String, Integer> indexesByName;
+
+    /**
+     * Returns the index of the first entry with the given name, or {@code -1} if there is no such entry.
+     */
+    public int indexOf(String name) {
+        var indexes = indexesByName;
+        if (indexes == null) {
+            indexes = new HashMap<>(names.length * 4 / 3 + 1);
+            for (var i = 0; i < names.length; i++) {
+                indexes.putIfAbsent(names[i], i);
+            }
+            indexesByName = indexes;
+        }
+
+        var index = indexes.get(name);
+        return index != null ? index : -1;
+    }
+
+
+    /**
+     * Reads and (if needed) inflates the entry content. Intended for small entries only.
+     */
+    @SneakyThrows
+    public byte[] readEntry(int index) {
+        var size = getSize(index);
+        var compressedSize = getCompressedSize(index);
+        if (size > Integer.MAX_VALUE - 8 || compressedSize > Integer.MAX_VALUE - 8) {
+            throw new ZipException("Entry is too large: " + file + "!/" + getName(index));
+        }
+
+        try (var channel = FileChannel.open(file, READ)) {
+            var dataOffset = getDataOffset(channel, index);
+            var compressed = ByteBuffer.allocate((int) compressedSize);
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, dataOffset + compressed.position()) < 0) {
+                    throw new ZipException("Unexpected end of ZIP file: " + file + "!/" + getName(index));
+                }
+            }
+
+            return switch (getMethod(index)) {
+                case METHOD_STORED -> compressed.array();
+                case METHOD_DEFLATED -> inflate(compressed.array(), (int) size, index);
+                default -> throw new ZipException(
+                    "Unsupported compression method " + getMethod(index) + ": " + file + "!/" + getName(index)
+                );
+            };
+        }
+    }
+
+    long getDataOffset(FileChannel channel, int index) throws Exception {
+        var localHeaderOffset = getLocalHeaderOffset(index);
+        var localHeader = ByteBuffer.allocate(LOCAL_FILE_HEADER_SIZE).order(LITTLE_ENDIAN);
+        while (localHeader.hasRemaining()) {
+            if (channel.read(localHeader, localHeaderOffset + localHeader.position()) < 0) {
+                throw new ZipException("Unexpected end of ZIP file: " + file + "!/" + getName(index));
+            }
+        }
+        if (localHeader.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local file header: " + file + "!/" + getName(index));
+        }
+
+        var nameLength = Short.toUnsignedInt(localHeader.getShort(26));
+        var extraLength = Short.toUnsignedInt(localHeader.getShort(28));
+        return localHeaderOffset + LOCAL_FILE_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private byte[] inflate(byte[] compressed, int size, int index) throws ZipException {
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            var result = new byte[size];
+            var length = 0;
+            while (length < size && !inflater.finished()) {
+                var inflated = inflater.inflate(result, length, size - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != size) {
+                throw new ZipException("Invalid entry size: " + file + "!/" + getName(index));
+            }
+            return result;
+
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid deflated data: " + file + "!/" + getName(index) + ": " + e.getMessage());
+
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
@@ -0,0 +1,294 @@
+package build.utils;
+
+import static build.utils.CacheCleanup.cleanupUnusedEntries;
+import static build.utils.CacheCleanup.markUsed;
+import static build.utils.GradleModuleClasspathUtils.readModules;
+import static build.utils.Utils.getGradleUserHomeDir;
+import static build.utils.Utils.tryToDeleteRecursively;
+import static build.utils.ZipIndex.hashCentralDirectory;
+import static build.utils.ZipIndex.readZipIndex;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createLink;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.move;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Collections.unmodifiableSequencedMap;
+import static java.util.Collections.unmodifiableSequencedSet;
+
+import build.utils.GradleModuleClasspathUtils.GradleModuleInfo;
+import com.google.common.hash.Hashing;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.SequencedMap;
+import java.util.SequencedSet;
+import java.util.function.Function;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A persistent store of ZIP file indexes, shared by all builds of the same user.
+ *
+ * <p>For every ZIP file, the store keeps names of its file entries and parsed Gradle module
+ * {@code *-classpath.properties} files, in a compact binary format that is loaded via memory mapping.
+ * Entry names are kept front-coded (see {@link FrontCodedStringSet}), and every section is decoded
+ * only when it's requested.
+ *
+ * <p>An index is looked up by the file identity (canonical path, size and modification time) first.
+ * If it's not found (for example, if the file was restored from a CI cache with a different modification time),
+ * the index is looked up by the hash of the raw central directory bytes, which is still much cheaper
+ * than decoding the central directory. Identity entries are hard links to the content entries.
+ *
+ * <p>Only input files that aren't modified afterward (like JAR files of a Gradle distribution)
+ * should be indexed via the store. Entries that aren't used for a long time are deleted
+ * by {@link CacheCleanup}.
+ *
+ * <p>The store directory is {@code caches/build-logic/zip-index-v2} in the Gradle user home.
+ * It can be changed via {@code systemProp.build-logic.zip-index-store.dir} in {@code gradle.properties}.
+ * An empty value disables the store.
+ */
+abstract class ZipIndexStore {
+
+    private static final int MAGIC = 0x424C5A49; // "BLZI"
+    private static final int FORMAT_VERSION = 2;
+
+    @Nullable
+    private static final Path STORE_DIR = getStoreDir();
+
+    @Nullable
+    private static Path getStoreDir() {
+        var dir = System.getProperty("build-logic.zip-index-store.dir");
+        if (dir != null) {
+            return dir.isEmpty() ? null : Paths.get(dir);
+        }
+
+        var cachesDir = getGradleUserHomeDir().resolve("caches/build-logic");
+        for (var version = 1; version < FORMAT_VERSION; version++) {
+            tryToDeleteRecursively(cachesDir.resolve("zip-index-v" + version));
+        }
+        return cachesDir.resolve("zip-index-v" + FORMAT_VERSION);
+    }
+
+
+    private record StoredZipIndex(
+        FrontCodedStringSet fileEntryNames,
+        SequencedMap<String, GradleModuleInfo> gradleModules
+    ) {
+    }
+
+    public static FrontCodedStringSet getStoredFileEntryNames(File file) {
+        return getStored(file, ZipIndexStore::readFileEntryNames, StoredZipIndex::fileEntryNames);
+    }
+
+    public static SequencedMap<String, GradleModuleInfo> getStoredGradleModules(File file) {
+        return getStored(file, ZipIndexStore::readGradleModules, StoredZipIndex::gradleModules);
+    }
+
+    @SneakyThrows
+    private static <T> T getStored(
+        File file,
+        Function<ByteBuffer, T> sectionReader,
+        Function<StoredZipIndex, T> sectionGetter
+    ) {
+        var storeDir = STORE_DIR;
+        if (storeDir == null) {
+            return sectionGetter.apply(createStoredZipIndex(file));
+        }
+
+        cleanupUnusedEntries(storeDir, 1);
+
+        var canonicalFile = file.getCanonicalFile();
+        var identity = canonicalFile.getPath() + '\0' + canonicalFile.length() + '\0' + canonicalFile.lastModified();
+        var identityFile = storeDir.resolve(
+            "id-" + Hashing.sha256().hashString(identity, UTF_8) + ".bin"
+        );
+        var section = load(identityFile, sectionReader);
+        if (section != null) {
+            return section;
+        }
+
+        var contentFile = storeDir.resolve(
+            "cd-" + hashCentralDirectory(canonicalFile.toPath()) + ".bin"
+        );
+        section = load(contentFile, sectionReader);
+        if (section == null) {
+            var stored = createStoredZipIndex(canonicalFile);
+            trySave(contentFile, stored);
+            section = sectionGetter.apply(stored);
+        }
+        tryLink(identityFile, contentFile);
+        return section;
+    }
+
+    private static StoredZipIndex createStoredZipIndex(File file) {
+        var index = readZipIndex(file);
+
+        var fileEntryIndexes = new ArrayList<Integer>(index.size());
+        for (var i = 0; i < index.size(); i++) {
+            if (!index.isDirectory(i)) {
+                fileEntryIndexes.add(i);
+            }
+        }
+        fileEntryIndexes.sort((i1, i2) -> index.getName(i1).compareTo(index.getName(i2)));
+
+        var names = new ArrayList<String>(fileEntryIndexes.size());
+        for (var entryIndex : fileEntryIndexes) {
+            var name = index.getName(entryIndex);
+            if (!names.isEmpty() && names.getLast().equals(name)) {
+                continue;
+            }
+            names.add(name);
+        }
+
+        return new StoredZipIndex(
+            FrontCodedStringSet.copyOfSorted(names),
+            readModules(index)
+        );
+    }
+
+
+    /*
+     * Format:
+     *   int magic, int format version
+     *   int length of the entry names section, entry names section (see FrontCodedStringSet#writeTo)
+     *   Gradle modules section
+     */
+
+    @Nullable
+    private static <T> T load(Path storeFile, Function<ByteBuffer, T> sectionReader) {
+        if (!isRegularFile(storeFile)) {
+            return null;
+        }
+
+        try (
+            var channel = FileChannel.open(storeFile, READ);
+            var arena = Arena.ofConfined()
+        ) {
+            var buf = channel.map(READ_ONLY, 0, channel.size(), arena).asByteBuffer();
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            var section = sectionReader.apply(buf);
+            markUsed(storeFile);
+            return section;
+
+        } catch (Exception e) {
+            // A corrupted or truncated file, it will be rewritten
+            return null;
+        }
+    }
+
+    private static FrontCodedStringSet readFileEntryNames(ByteBuffer buf) {
+        var namesLength = buf.getInt();
+        return FrontCodedStringSet.readFrom(buf.slice(buf.position(), namesLength));
+    }
+
+    private static SequencedMap<String, GradleModuleInfo> readGradleModules(ByteBuffer buf) {
+        var namesLength = buf.getInt();
+        buf.position(buf.position() + namesLength);
+
+        var modulesCount = buf.getInt();
+        var modules = new LinkedHashMap<String, GradleModuleInfo>();
+        for (var i = 0; i < modulesCount; i++) {
+            var moduleName = readString(buf);
+            var scopesCount = buf.getInt();
+            var scopePaths = new LinkedHashMap<String, SequencedSet<String>>();
+            for (var j = 0; j < scopesCount; j++) {
+                var scope = readString(buf);
+                var pathsCount = buf.getInt();
+                var paths = new LinkedHashSet<String>();
+                for (var k = 0; k < pathsCount; k++) {
+                    paths.add(readString(buf));
+                }
+                scopePaths.put(scope, unmodifiableSequencedSet(paths));
+            }
+            modules.put(moduleName, new GradleModuleInfo(unmodifiableSequencedMap(scopePaths)));
+        }
+        return unmodifiableSequencedMap(modules);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        var bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void trySave(Path storeFile, StoredZipIndex stored) {
+        try {
+            save(storeFile, stored);
+        } catch (Exception e) {
+            // The store is an optimization only, so the index is used even if it can't be stored
+        }
+    }
+
+    private static void save(Path storeFile, StoredZipIndex stored) throws Exception {
+        createDirectories(storeFile.getParent());
+        var tempFile = createTempFile(storeFile.getParent(), storeFile.getFileName().toString(), ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+
+                var names = new ByteArrayOutputStream();
+                try (var namesOut = new DataOutputStream(names)) {
+                    stored.fileEntryNames().writeTo(namesOut);
+                }
+                out.writeInt(names.size());
+                names.writeTo(out);
+
+                var modules = stored.gradleModules();
+                out.writeInt(modules.size());
+                for (var module : modules.entrySet()) {
+                    writeString(out, module.getKey());
+                    var scopePaths = module.getValue().scopePaths();
+                    out.writeInt(scopePaths.size());
+                    for (var scope : scopePaths.entrySet()) {
+                        writeString(out, scope.getKey());
+                        out.writeInt(scope.getValue().size());
+                        for (var path : scope.getValue()) {
+                            writeString(out, path);
+                        }
+                    }
+                }
+            }
+
+            move(tempFile, storeFile, ATOMIC_MOVE, REPLACE_EXISTING);
+
+        } finally {
+            deleteIfExists(tempFile);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws Exception {
+        var bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void tryLink(Path link, Path existing) {
+        try {
+            deleteIfExists(link);
+            createLink(link, existing);
+        } catch (Exception e) {
+            // The identity entry is an optimization only, the content entry is used without it
+        }
+    }
+
+}
@@ -1,54 +1,118 @@
 package build.utils;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.util.Collections.unmodifiableSequencedSet;
-import static java.util.function.Predicate.not;
-import static java.util.stream.Collectors.toCollection;
+import static build.utils.ZipIndexStore.getStoredFileEntryNames;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.io.File;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.SequencedMap;
-import java.util.SequencedSet;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 import lombok.SneakyThrows;
 
 public abstract class ZipUtils {
 
-    private static final SequencedMap<File, ZipFileInfo> CACHE = new LinkedHashMap<>();
+    /**
+     * Memory budget of the {@link ZipFileInfo} cache, in (estimated) bytes.
+     *
+     * <p>Can be changed via {@code systemProp.build-logic.zip-file-info-cache.max-size} in {@code gradle.properties}.
+     */
+    private static final long CACHE_MAX_SIZE = Long.getLong(
+        "build-logic.zip-file-info-cache.max-size",
+        256L * 1024 * 1024
+    );
 
-    private static synchronized ZipFileInfo getInfo(File file) {
-        return CACHE.computeIfAbsent(file, ZipUtils::readInfo);
-    }
+    private static final LoadingCache<ZipFileKey, ZipFileInfo> CACHE = CacheBuilder.newBuilder()
+        .maximumWeight(CACHE_MAX_SIZE)
+        .weigher((ZipFileKey key, ZipFileInfo info) -> info.estimateSize())
+        .recordStats()
+        .build(CacheLoader.from(key -> readInfo(key.file())));
 
     @SneakyThrows
+    private static ZipFileInfo getInfo(File file) {
+        try {
+            return CACHE.get(ZipFileKey.of(file));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
     private static ZipFileInfo readInfo(File file) {
-        try (var zipFile = new ZipFile(file, UTF_8)) {
-            var fileEntryNames = zipFile.stream()
-                .filter(not(ZipEntry::isDirectory))
-                .map(ZipEntry::getName)
-                .sorted()
-                .collect(toCollection(LinkedHashSet::new));
-
-            return new ZipFileInfo(
-                unmodifiableSequencedSet(fileEntryNames)
-            );
+        return new ZipFileInfo(
+            getStoredFileEntryNames(file)
+        );
+    }
+
+
+    /**
+     * The file is a part of the key together with its size and modification time,
+     * so a file rewritten in place (for example, by a build of another Gradle version) is read again.
+     */
+    private record ZipFileKey(
+        File file,
+        long length,
+        long lastModified
+    ) {
+
+        static ZipFileKey of(File file) {
+            file = file.getAbsoluteFile();
+            return new ZipFileKey(file, file.length(), file.lastModified());
         }
+
     }
 
 
+    /**
+     * @param fileEntryNames names of all file entries, sorted
+     */
     public record ZipFileInfo(
-        SequencedSet<String> fileEntryNames
-    ) { }
+        FrontCodedStringSet fileEntryNames
+    ) {
+
+        private int estimateSize() {
+            return (int) Math.min(fileEntryNames.estimateSize(), Integer.MAX_VALUE);
+        }
+
+    }
 
 
     public static ZipFileInfo getZipFileInfo(File file) {
         return getInfo(file);
     }
 
-    public static SequencedSet<String> getZipFileEntryNames(File file) {
+    public static FrontCodedStringSet getZipFileEntryNames(File file) {
         return getZipFileInfo(file).fileEntryNames();
     }
 
+    /**
+     * Returns names of file entries that start with any of the {@code prefixes}, sorted.
+     *
+     * <p>Every prefix is resolved with a binary search over the sorted entry names,
+     * so only the matching entries are visited.
+     */
+    public static List<String> getZipFileEntryNamesStartingWith(File file, Collection<String> prefixes) {
+        var names = getZipFileEntryNames(file);
+        var result = new ArrayList<String>();
+        String lastPrefix = null;
+        for (var prefix : new TreeSet<>(prefixes)) {
+            // entries of a prefix starting with the previous one have already been added
+            if (lastPrefix != null && prefix.startsWith(lastPrefix)) {
+                continue;
+            }
+            // sorted prefixes that don't start with each other select sorted disjoint ranges
+            result.addAll(names.startingWith(prefix));
+            lastPrefix = prefix;
+        }
+        return result;
+    }
+
+    public static CacheStats getZipFileInfoCacheStats() {
+        return CACHE.stats();
+    }
+
 }
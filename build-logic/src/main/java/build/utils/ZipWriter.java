@@ -0,0 +1,359 @@
+package build.utils;
+
+import static build.utils.Utils.tryToDeleteRecursively;
+import static build.utils.ZipIndex.CENTRAL_DIRECTORY_HEADER_SIGNATURE;
+import static build.utils.ZipIndex.CENTRAL_DIRECTORY_HEADER_SIZE;
+import static build.utils.ZipIndex.END_OF_CENTRAL_DIRECTORY_SIGNATURE;
+import static build.utils.ZipIndex.END_OF_CENTRAL_DIRECTORY_SIZE;
+import static build.utils.ZipIndex.LOCAL_FILE_HEADER_SIGNATURE;
+import static build.utils.ZipIndex.LOCAL_FILE_HEADER_SIZE;
+import static build.utils.ZipIndex.METHOD_DEFLATED;
+import static build.utils.ZipIndex.NO_EXTRA_FIELDS;
+import static build.utils.ZipIndex.ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE;
+import static build.utils.ZipIndex.ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+import static build.utils.ZipIndex.ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE;
+import static build.utils.ZipIndex.ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE;
+import static build.utils.ZipIndex.ZIP64_EXTRA_FIELD_ID;
+import static build.utils.ZipIndex.ZIP64_MAGIC_VALUE;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * A minimal ZIP archive writer that can copy already compressed entries from other archives as-is.
+ *
+ * <p>For a copied entry, the compressed data is transferred from the source file with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * and CRC32 and sizes are taken from the source {@link ZipIndex}. Only the local file headers
+ * and the central directory are generated, so nothing is inflated or deflated again.
+ * Extra fields of the source central directory header (like extended timestamps) are written
+ * to both headers of the copied entry, like {@link java.util.zip.ZipOutputStream} does for a copied
+ * {@link java.util.zip.ZipEntry}. The ZIP64 extended information field is generated only if needed.
+ *
+ * <p>The central directory is written only by {@link #finish()}. If {@link #close()} is called without it,
+ * for example, because writing an entry failed or the build was cancelled, the file is deleted,
+ * so no truncated archive is left behind.
+ */
+public class ZipWriter implements Closeable {
+
+    private static final int VERSION_NEEDED_DEFAULT = 20;
+    private static final int VERSION_NEEDED_ZIP64 = 45;
+
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private static final int DIRECTORY_EXTERNAL_ATTRIBUTES = 0x10;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private final ByteBuffer header = ByteBuffer.allocate(1024).order(LITTLE_ENDIAN);
+    private final Set<String> entryNames = new HashSet<>();
+    private int entriesCount;
+    private boolean failed;
+    private boolean finished;
+    private boolean closed;
+
+    public ZipWriter(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING);
+    }
+
+
+    public boolean hasEntry(String name) {
+        return entryNames.contains(name);
+    }
+
+    /**
+     * Copies the entry with the given index from {@code sourceIndex} without decompression.
+     *
+     * @return {@code false} if an entry with the same name has already been written
+     */
+    public boolean copyEntry(ZipIndex sourceIndex, FileChannel sourceChannel, int index) throws Exception {
+        return copyEntry(sourceIndex, sourceChannel, index, sourceIndex.getName(index));
+    }
+
+    /**
+     * Copies the entry with the given index from {@code sourceIndex} without decompression,
+     * storing it under the {@code name}.
+     *
+     * @return {@code false} if an entry with the same name has already been written
+     */
+    public boolean copyEntry(ZipIndex sourceIndex, FileChannel sourceChannel, int index, String name)
+        throws Exception {
+        if (!entryNames.add(name)) {
+            return false;
+        }
+
+        try {
+            var dataOffset = sourceIndex.getDataOffset(sourceChannel, index);
+            var compressedSize = sourceIndex.getCompressedSize(index);
+            writeLocalHeader(
+                name,
+                sourceIndex.getMethod(index),
+                sourceIndex.getDosTime(index),
+                sourceIndex.getCrc(index),
+                compressedSize,
+                sourceIndex.getSize(index),
+                sourceIndex.getExtraFields(index)
+            );
+
+            var position = dataOffset;
+            var end = dataOffset + compressedSize;
+            while (position < end) {
+                var transferred = sourceChannel.transferTo(position, end - position, channel);
+                if (transferred <= 0) {
+                    if (position >= sourceChannel.size()) {
+                        throw new ZipException("Unexpected end of ZIP file: " + sourceIndex.getFile() + "!/" + name);
+                    }
+                    continue;
+                }
+                position += transferred;
+            }
+
+        } catch (Throwable e) {
+            failed = true;
+            throw e;
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a new deflated entry with the given content.
+     *
+     * @return {@code false} if an entry with the same name has already been written
+     */
+    public boolean putEntry(String name, byte[] content, int dosTime) throws IOException {
+        if (!entryNames.add(name)) {
+            return false;
+        }
+
+        var crc = new CRC32();
+        crc.update(content);
+
+        var compressed = new ByteArrayOutputStream();
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            var buffer = new byte[8192];
+            while (!deflater.finished()) {
+                var length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        try {
+            writeLocalHeader(
+                name,
+                METHOD_DEFLATED,
+                dosTime,
+                (int) crc.getValue(),
+                compressed.size(),
+                content.length,
+                NO_EXTRA_FIELDS
+            );
+            writeFully(ByteBuffer.wrap(compressed.toByteArray()));
+
+        } catch (Throwable e) {
+            failed = true;
+            throw e;
+        }
+
+        return true;
+    }
+
+
+    private void writeLocalHeader(
+        String name,
+        int method,
+        int dosTime,
+        int crc,
+        long compressedSize,
+        long size,
+        byte[] extraFields
+    ) throws IOException {
+        var nameBytes = name.getBytes(UTF_8);
+        var localHeaderOffset = channel.position();
+        var zip64Sizes = compressedSize >= ZIP64_MAGIC_VALUE || size >= ZIP64_MAGIC_VALUE;
+        var zip64Offset = localHeaderOffset >= ZIP64_MAGIC_VALUE;
+        // CRC32 and sizes are always known here, so data descriptors are never written
+        var flags = FLAG_UTF8;
+
+        var localExtraLength = (zip64Sizes ? 20 : 0) + extraFields.length;
+        var cdZip64ExtraLength = (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+        var cdExtraLength = (cdZip64ExtraLength > 0 ? 4 + cdZip64ExtraLength : 0) + extraFields.length;
+        if (localExtraLength > 0xFFFF || cdExtraLength > 0xFFFF) {
+            throw new ZipException("Extra fields are too long: " + file + "!/" + name);
+        }
+
+        var buf = headerBuffer(LOCAL_FILE_HEADER_SIZE + nameBytes.length + localExtraLength);
+        buf.putInt(LOCAL_FILE_HEADER_SIGNATURE);
+        buf.putShort((short) (zip64Sizes ? VERSION_NEEDED_ZIP64 : VERSION_NEEDED_DEFAULT));
+        buf.putShort((short) flags);
+        buf.putShort((short) method);
+        buf.putInt(dosTime);
+        buf.putInt(crc);
+        buf.putInt((int) (zip64Sizes ? ZIP64_MAGIC_VALUE : compressedSize));
+        buf.putInt((int) (zip64Sizes ? ZIP64_MAGIC_VALUE : size));
+        buf.putShort((short) nameBytes.length);
+        buf.putShort((short) localExtraLength);
+        buf.put(nameBytes);
+        if (zip64Sizes) {
+            buf.putShort((short) ZIP64_EXTRA_FIELD_ID);
+            buf.putShort((short) 16);
+            buf.putLong(size);
+            buf.putLong(compressedSize);
+        }
+        buf.put(extraFields);
+        buf.flip();
+        writeFully(buf);
+
+
+        var cd = headerBuffer(CENTRAL_DIRECTORY_HEADER_SIZE + nameBytes.length + cdExtraLength);
+        cd.putInt(CENTRAL_DIRECTORY_HEADER_SIGNATURE);
+        cd.putShort((short) VERSION_NEEDED_ZIP64);
+        cd.putShort((short) (zip64Sizes || zip64Offset ? VERSION_NEEDED_ZIP64 : VERSION_NEEDED_DEFAULT));
+        cd.putShort((short) flags);
+        cd.putShort((short) method);
+        cd.putInt(dosTime);
+        cd.putInt(crc);
+        cd.putInt((int) (zip64Sizes ? ZIP64_MAGIC_VALUE : compressedSize));
+        cd.putInt((int) (zip64Sizes ? ZIP64_MAGIC_VALUE : size));
+        cd.putShort((short) nameBytes.length);
+        cd.putShort((short) cdExtraLength);
+        cd.putShort((short) 0); // comment length
+        cd.putShort((short) 0); // disk number start
+        cd.putShort((short) 0); // internal file attributes
+        cd.putInt(name.endsWith("/") ? DIRECTORY_EXTERNAL_ATTRIBUTES : 0);
+        cd.putInt((int) (zip64Offset ? ZIP64_MAGIC_VALUE : localHeaderOffset));
+        cd.put(nameBytes);
+        if (cdZip64ExtraLength > 0) {
+            cd.putShort((short) ZIP64_EXTRA_FIELD_ID);
+            cd.putShort((short) cdZip64ExtraLength);
+            if (zip64Sizes) {
+                cd.putLong(size);
+                cd.putLong(compressedSize);
+            }
+            if (zip64Offset) {
+                cd.putLong(localHeaderOffset);
+            }
+        }
+        cd.put(extraFields);
+        centralDirectory.write(cd.array(), 0, cd.position());
+
+        entriesCount++;
+    }
+
+    private ByteBuffer headerBuffer(int capacity) {
+        if (capacity <= header.capacity()) {
+            return header.clear();
+        }
+        return ByteBuffer.allocate(capacity).order(LITTLE_ENDIAN);
+    }
+
+    private void writeFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+
+    /**
+     * Writes the central directory. Must be called after all entries have been written, before {@link #close()}.
+     */
+    public void finish() throws IOException {
+        if (failed) {
+            throw new IllegalStateException("Writing an entry to " + file + " failed");
+        }
+        if (finished) {
+            return;
+        }
+
+        try {
+            writeCentralDirectory();
+        } catch (Throwable e) {
+            failed = true;
+            throw e;
+        }
+        finished = true;
+    }
+
+    /**
+     * Closes the file. Deletes it if {@link #finish()} hasn't completed successfully.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            channel.close();
+        } finally {
+            if (!finished) {
+                tryToDeleteRecursively(file);
+            }
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        var cdOffset = channel.position();
+        writeFully(ByteBuffer.wrap(centralDirectory.toByteArray()));
+        var cdSize = centralDirectory.size();
+        var cdEnd = channel.position();
+
+        var zip64 = entriesCount >= 0xFFFF || cdOffset >= ZIP64_MAGIC_VALUE || cdEnd >= ZIP64_MAGIC_VALUE;
+        var buf = ByteBuffer.allocate(
+            ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE
+                + ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE
+                + END_OF_CENTRAL_DIRECTORY_SIZE
+        ).order(LITTLE_ENDIAN);
+        if (zip64) {
+            buf.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            buf.putLong(ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE - 12);
+            buf.putShort((short) VERSION_NEEDED_ZIP64);
+            buf.putShort((short) VERSION_NEEDED_ZIP64);
+            buf.putInt(0); // number of this disk
+            buf.putInt(0); // disk with the start of the central directory
+            buf.putLong(entriesCount);
+            buf.putLong(entriesCount);
+            buf.putLong(cdSize);
+            buf.putLong(cdOffset);
+
+            buf.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE);
+            buf.putInt(0); // disk with the start of the ZIP64 end of central directory
+            buf.putLong(cdEnd);
+            buf.putInt(1); // total number of disks
+        }
+
+        buf.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        buf.putShort((short) 0); // number of this disk
+        buf.putShort((short) 0); // disk with the start of the central directory
+        buf.putShort((short) (zip64 ? 0xFFFF : entriesCount));
+        buf.putShort((short) (zip64 ? 0xFFFF : entriesCount));
+        buf.putInt((int) (zip64 ? ZIP64_MAGIC_VALUE : cdSize));
+        buf.putInt((int) (zip64 ? ZIP64_MAGIC_VALUE : cdOffset));
+        buf.putShort((short) 0); // comment length
+        buf.flip();
+        writeFully(buf);
+    }
+
+}
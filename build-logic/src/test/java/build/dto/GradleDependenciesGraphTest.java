@@ -0,0 +1,160 @@
+package build.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class GradleDependenciesGraphTest {
+
+    @Test
+    void allDependenciesIncludeTransitiveOnes() {
+        var graph = createGraph(Map.of(
+            "core", List.of("logging", "base-services"),
+            "logging", List.of("stdlib"),
+            "base-services", List.of("stdlib", "annotations"),
+            "stdlib", List.of(),
+            "annotations", List.of()
+        ));
+
+        assertThat(graph.getAllDependencies(id("core")))
+            .extracting(GradleDependencyId::getName)
+            .containsExactlyInAnyOrder("logging", "base-services", "stdlib", "annotations");
+        assertThat(graph.getAllDependencies(id("logging")))
+            .extracting(GradleDependencyId::getName)
+            .containsExactly("stdlib");
+        assertThat(graph.getAllDependencies(id("stdlib"))).isEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("seeds")
+    void allDependenciesMatchGraphTraversal(long seed) {
+        var random = new Random(seed);
+        var nodesCount = 1 + random.nextInt(50);
+        var dependencies = new LinkedHashMap<String, List<String>>();
+        for (var node = nodesCount - 1; node >= 0; node--) {
+            var deps = LongStream.range(0, node)
+                .filter(_ -> random.nextInt(5) == 0)
+                .mapToObj(dep -> "node-" + dep)
+                .toList();
+            dependencies.put("node-" + node, deps);
+        }
+
+        var graph = createGraph(dependencies);
+
+        dependencies.keySet().forEach(name -> assertThat(graph.getAllDependencies(id(name)))
+            .as(name)
+            .extracting(GradleDependencyId::getName)
+            .containsExactlyInAnyOrderElementsOf(traverse(dependencies, name))
+        );
+    }
+
+    static LongStream seeds() {
+        return LongStream.range(0, 100);
+    }
+
+    @Test
+    void allDependenciesAreUnmodifiable() {
+        var graph = createGraph(Map.of(
+            "a", List.of("b"),
+            "b", List.of()
+        ));
+
+        assertThatThrownBy(() -> graph.getAllDependencies(id("a")).clear())
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void cycleIsDetected() {
+        var dependencies = new LinkedHashMap<String, List<String>>();
+        dependencies.put("root", List.of("a"));
+        dependencies.put("a", List.of("b"));
+        dependencies.put("b", List.of("c"));
+        dependencies.put("c", List.of("a"));
+
+        assertThatThrownBy(() -> createGraph(dependencies))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Dependency cycle detected: a -> b -> c -> a");
+    }
+
+    @Test
+    void selfDependencyIsDetected() {
+        assertThatThrownBy(() -> createGraph(Map.of("a", List.of("a"))))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Dependency cycle detected: a -> a");
+    }
+
+    @Test
+    void notRegisteredDependencyIsReported() {
+        var graph = createGraph(Map.of(
+            "a", List.of("b"),
+            "b", List.of("c")
+        ));
+
+        assertThatThrownBy(() -> graph.getAllDependencies(id("a")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Not registered dependency: " + id("c"));
+        assertThatThrownBy(() -> graph.getAllDependencies(id("c")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Not registered dependency: " + id("c"));
+        assertThatThrownBy(() -> graph.getAllDependencies(id("unknown")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Not registered dependency: " + id("unknown"));
+    }
+
+    @Test
+    void transitiveDependenciesAreRemoved() {
+        var graph = createGraph(Map.of(
+            "a", List.of("b", "c", "d"),
+            "b", List.of("c"),
+            "c", List.of("d"),
+            "d", List.of(),
+            "e", List.of()
+        ));
+
+        var dependencies = new HashSet<>(Set.of(id("b"), id("c"), id("d"), id("e")));
+        graph.removeTransitiveDependencies(dependencies);
+
+        assertThat(dependencies)
+            .extracting(GradleDependencyId::getName)
+            .containsExactlyInAnyOrder("b", "e");
+    }
+
+
+    private static GradleDependenciesGraph createGraph(Map<String, List<String>> dependencies) {
+        var infos = new LinkedHashMap<GradleDependencyId, GradleDependencyInfo>();
+        dependencies.forEach((name, deps) -> {
+            var info = new GradleDependencyInfo();
+            deps.forEach(dep -> info.getDependencies().add(id(dep)));
+            infos.put(id(name), info);
+        });
+        return new GradleDependenciesGraph(infos);
+    }
+
+    private static GradleDependencyId id(String name) {
+        return GradleDependencyId.fromString("org.gradle:" + name + ":1.0");
+    }
+
+    private static Set<String> traverse(Map<String, List<String>> dependencies, String name) {
+        var result = new HashSet<String>();
+        var queue = new ArrayDeque<>(dependencies.get(name));
+        while (!queue.isEmpty()) {
+            var dep = queue.poll();
+            if (result.add(dep)) {
+                queue.addAll(dependencies.get(dep));
+            }
+        }
+        return result;
+    }
+
+}
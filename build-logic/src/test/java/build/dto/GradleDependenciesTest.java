@@ -0,0 +1,270 @@
+package build.dto;
+
+import static java.util.stream.Collectors.toCollection;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class GradleDependenciesTest {
+
+    @Test
+    void dependenciesReachableViaOtherDependenciesAreRemoved() {
+        var gradleDependencies = createGradleDependencies(Map.of(
+            "core", List.of("base-services", "logging", "stdlib"),
+            "logging", List.of("base-services", "stdlib"),
+            "base-services", List.of("stdlib"),
+            "stdlib", List.of()
+        ));
+
+        gradleDependencies.cleanup();
+
+        assertThat(toEdges(gradleDependencies)).isEqualTo(Map.of(
+            "core", List.of("logging"),
+            "logging", List.of("base-services"),
+            "base-services", List.of("stdlib"),
+            "stdlib", List.of()
+        ));
+    }
+
+    @Test
+    void dependenciesReachableViaSeveralHopsAreRemoved() {
+        var gradleDependencies = createGradleDependencies(Map.of(
+            "a", List.of("b", "d"),
+            "b", List.of("c"),
+            "c", List.of("d"),
+            "d", List.of()
+        ));
+
+        gradleDependencies.cleanup();
+
+        // the pairwise baseline algorithm kept a -> d here, as d isn't a direct dependency of b
+        assertThat(toEdges(gradleDependencies).get("a")).containsExactly("b");
+    }
+
+    @Test
+    void dependenciesAreGroupedByNodeWithoutArtifact() {
+        var dependencies = new LinkedHashMap<String, List<String>>();
+        dependencies.put("core", List.of("base-services", "groovy", "groovy-json", "groovy-xml"));
+        dependencies.put("base-services", List.of());
+        dependencies.put("groovy", List.of());
+        dependencies.put("groovy-json", List.of("groovy"));
+        dependencies.put("groovy-xml", List.of("groovy"));
+        dependencies.put("local-groovy", List.of("groovy", "groovy-json", "groovy-xml"));
+        var gradleDependencies = createGradleDependencies(dependencies);
+        gradleDependencies.getDependencies().get(id("local-groovy")).setPath((String) null);
+        var expected = copyDependencies(gradleDependencies.getDependencies());
+
+        gradleDependencies.cleanup();
+        removeRedundantDependenciesPairwise(expected);
+
+        assertThat(toEdges(gradleDependencies)).isEqualTo(toEdges(expected));
+        assertThat(toEdges(gradleDependencies).get("core")).containsExactly("base-services", "local-groovy");
+    }
+
+    @ParameterizedTest
+    @MethodSource("seeds")
+    void removeRedundantDependenciesMatchesBaseline(long seed) {
+        // every node depends on its whole classpath, like Gradle modules do
+        var random = new Random(seed);
+        var nodesCount = 2 + random.nextInt(40);
+        var classpaths = new BitSet[nodesCount];
+        for (var node = 0; node < nodesCount; node++) {
+            var classpath = new BitSet(nodesCount);
+            for (var dep = 0; dep < node; dep++) {
+                if (random.nextInt(4) == 0) {
+                    classpath.set(dep);
+                    classpath.or(classpaths[dep]);
+                }
+            }
+            classpaths[node] = classpath;
+        }
+
+        var nodes = LongStream.range(0, nodesCount).boxed().collect(toCollection(ArrayList::new));
+        Collections.shuffle(nodes, random);
+        var dependencies = new LinkedHashMap<String, List<String>>();
+        for (var node : nodes) {
+            var deps = classpaths[node.intValue()].stream()
+                .mapToObj(dep -> "node-" + dep)
+                .collect(toCollection(ArrayList::new));
+            Collections.shuffle(deps, random);
+            dependencies.put("node-" + node, deps);
+        }
+        var gradleDependencies = createGradleDependencies(dependencies);
+        var expected = copyDependencies(gradleDependencies.getDependencies());
+
+        gradleDependencies.cleanup();
+        removeRedundantDependenciesPairwise(expected);
+
+        assertThat(toEdges(gradleDependencies)).isEqualTo(toEdges(expected));
+    }
+
+    static LongStream seeds() {
+        return LongStream.range(0, 200);
+    }
+
+    @Test
+    void cleanupIsSkippedUntilGraphIsInvalidated() {
+        var gradleDependencies = createGradleDependencies(Map.of(
+            "a", List.of("b"),
+            "b", List.of("c"),
+            "c", List.of()
+        ));
+        gradleDependencies.cleanup();
+
+        var aDeps = gradleDependencies.getDependencies().get(id("a")).getDependencies();
+        aDeps.add(id("c"));
+        gradleDependencies.cleanup();
+        assertThat(toEdges(gradleDependencies).get("a")).containsExactly("b", "c");
+
+        gradleDependencies.invalidateGraph();
+        gradleDependencies.cleanup();
+        assertThat(toEdges(gradleDependencies).get("a")).containsExactly("b");
+    }
+
+    @Test
+    void setDependenciesInvalidatesGraph() {
+        var gradleDependencies = createGradleDependencies(Map.of(
+            "a", List.of("b"),
+            "b", List.of()
+        ));
+        gradleDependencies.cleanup();
+
+        var newGradleDependencies = createGradleDependencies(Map.of(
+            "a", List.of("b", "c"),
+            "b", List.of("c"),
+            "c", List.of()
+        ));
+        gradleDependencies.setDependencies(newGradleDependencies.getDependencies());
+        assertThat(gradleDependencies.getAllDependencies(id("a")))
+            .extracting(GradleDependencyId::getName)
+            .containsExactlyInAnyOrder("b", "c");
+
+        gradleDependencies.cleanup();
+        assertThat(toEdges(gradleDependencies).get("a")).containsExactly("b");
+    }
+
+    @Test
+    void internedIdsDoNotInvalidateGraph() {
+        var gradleDependencies = createGradleDependencies(Map.of(
+            "a", List.of("b"),
+            "b", List.of("c"),
+            "c", List.of()
+        ));
+        gradleDependencies.internGradleDependencyIds();
+        gradleDependencies.cleanup();
+
+        var aDeps = gradleDependencies.getDependencies().get(id("a")).getDependencies();
+        aDeps.add(gradleDependencies.getDependencyIdByPathOrName("c"));
+        gradleDependencies.internGradleDependencyIds();
+        gradleDependencies.cleanup();
+        assertThat(toEdges(gradleDependencies).get("a")).containsExactly("b", "c");
+
+        // a new instance of an ID has to be interned
+        aDeps = gradleDependencies.getDependencies().get(id("a")).getDependencies();
+        aDeps.remove(id("c"));
+        aDeps.add(id("c"));
+        gradleDependencies.internGradleDependencyIds();
+        gradleDependencies.cleanup();
+        assertThat(toEdges(gradleDependencies).get("a")).containsExactly("b");
+    }
+
+
+    private static GradleDependencies createGradleDependencies(Map<String, List<String>> dependencies) {
+        var gradleDependencies = new GradleDependencies("1.0", "sources.zip");
+        dependencies.forEach((name, deps) -> {
+            var info = new GradleDependencyInfo();
+            info.setPath(name + ".jar");
+            deps.forEach(dep -> info.getDependencies().add(id(dep)));
+            gradleDependencies.getDependencies().put(id(name), info);
+        });
+        return gradleDependencies;
+    }
+
+    private static GradleDependencyId id(String name) {
+        return GradleDependencyId.fromString("org.gradle:" + name + ":1.0");
+    }
+
+    private static Map<GradleDependencyId, GradleDependencyInfo> copyDependencies(
+        Map<GradleDependencyId, GradleDependencyInfo> dependencies
+    ) {
+        var result = new LinkedHashMap<GradleDependencyId, GradleDependencyInfo>();
+        dependencies.forEach((id, info) -> {
+            var infoCopy = new GradleDependencyInfo();
+            infoCopy.setPath(info.getPath());
+            infoCopy.setDependencies(new LinkedHashSet<>(info.getDependencies()));
+            result.put(id, infoCopy);
+        });
+        return result;
+    }
+
+    private static Map<String, List<String>> toEdges(GradleDependencies gradleDependencies) {
+        return toEdges(gradleDependencies.getDependencies());
+    }
+
+    private static Map<String, List<String>> toEdges(Map<GradleDependencyId, GradleDependencyInfo> dependencies) {
+        var result = new LinkedHashMap<String, List<String>>();
+        dependencies.forEach((id, info) -> result.put(
+            id.getName(),
+            info.getDependencies().stream()
+                .map(GradleDependencyId::getName)
+                .toList()
+        ));
+        return result;
+    }
+
+    /**
+     * The pairwise algorithm that was used before the transitive reduction over closures.
+     */
+    private static void removeRedundantDependenciesPairwise(
+        Map<GradleDependencyId, GradleDependencyInfo> dependencies
+    ) {
+        dependencies.forEach((id, info) -> {
+            if (info.getDependencies().isEmpty()) {
+                return;
+            }
+
+            dependencies.forEach((otherId, otherInfo) -> {
+                if (id.equals(otherId)) {
+                    return;
+                }
+
+                if (otherInfo.getDependencies().contains(id)) {
+                    otherInfo.getDependencies().removeAll(info.getDependencies());
+                }
+
+                var otherHasAllDependencies = otherInfo.getDependencies().containsAll(info.getDependencies());
+                if (!otherHasAllDependencies) {
+                    return;
+                }
+
+                if (info.hasArtifact()) {
+                    if (!otherInfo.getDependencies().contains(id)) {
+                        return;
+                    }
+                }
+
+                var newOtherDeps = new LinkedHashSet<GradleDependencyId>();
+                for (var otherDep : otherInfo.getDependencies()) {
+                    if (info.getDependencies().contains(otherDep)) {
+                        newOtherDeps.add(id);
+                    } else {
+                        newOtherDeps.add(otherDep);
+                    }
+                }
+                otherInfo.setDependencies(newOtherDeps);
+            });
+        });
+    }
+
+}
@@ -0,0 +1,157 @@
+package build.utils;
+
+import static build.utils.Utils.substringBeforeLast;
+import static build.utils.ZipIndex.readZipIndex;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.objectweb.asm.ClassReader.SKIP_CODE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.V17;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.SequencedMap;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+
+class AsmUtilsTest {
+
+    private static final List<List<String>> OWNER_PREFIXES_AND_SUFFIXES = List.of(
+        List.of("java/lang/", ""),
+        List.of("java/util/", "Map"),
+        List.of("", "Builder"),
+        List.of("com/google/common/collect/", "Builder"),
+        List.of("org/gradle/", "ModuleRegistry")
+    );
+
+
+    @ParameterizedTest
+    @MethodSource("build.utils.TestJars#getLibraryJars")
+    void getSourceFileMatchesClassReader(Path jar) {
+        var classFiles = readClassFiles(jar);
+        assertThat(classFiles).isNotEmpty();
+        for (var entry : classFiles.entrySet()) {
+            var bytes = entry.getValue();
+            var expected = getSourceFileWithClassReader(bytes);
+            // trailing bytes after the class file must be ignored
+            var paddedBytes = Arrays.copyOf(bytes, bytes.length + 100);
+
+            assertThat(AsmUtils.getSourceFile(paddedBytes, bytes.length)).as(entry.getKey()).isEqualTo(expected);
+            assertThat(AsmUtils.getSourceFile(new ByteArrayInputStream(bytes))).as(entry.getKey()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void getSourceFileForMalformedClassFile() {
+        var bytes = "not a class file".getBytes(UTF_8);
+        assertThatThrownBy(() -> AsmUtils.getSourceFile(bytes, bytes.length))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void getSourceFileOfDefaultPackageClass() {
+        var classWriter = new ClassWriter(0);
+        classWriter.visit(V17, ACC_PUBLIC, "Default", null, "java/lang/Object", null);
+        classWriter.visitSource("Default.java", null);
+        classWriter.visitEnd();
+        var bytes = classWriter.toByteArray();
+
+        // the same path as ClassReader-based parsing has always returned, so published sources jars don't change
+        assertThat(AsmUtils.getSourceFile(bytes, bytes.length)).isEqualTo("Default/Default.java");
+    }
+
+    @ParameterizedTest
+    @MethodSource("build.utils.TestJars#getLibraryJars")
+    void hasMethodReferenceMatchesClassReader(Path jar) {
+        for (var entry : readClassFiles(jar).entrySet()) {
+            var bytes = entry.getValue();
+            var owners = getMethodReferenceOwners(bytes);
+            // trailing bytes after the class file must be ignored
+            var paddedBytes = Arrays.copyOf(bytes, bytes.length + 100);
+
+            for (var prefixAndSuffix : OWNER_PREFIXES_AND_SUFFIXES) {
+                var prefix = prefixAndSuffix.get(0);
+                var suffix = prefixAndSuffix.get(1);
+                var expected = owners.stream()
+                    .anyMatch(owner -> owner.length() >= prefix.length() + suffix.length()
+                        && owner.startsWith(prefix)
+                        && owner.endsWith(suffix)
+                    );
+                assertThat(AsmUtils.hasMethodReference(paddedBytes, bytes.length, prefix, suffix))
+                    .as("%s: %s*%s", entry.getKey(), prefix, suffix)
+                    .isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void hasMethodReferenceForMalformedClassFile() {
+        var bytes = "not a class file".getBytes(UTF_8);
+        assertThat(AsmUtils.hasMethodReference(bytes, bytes.length, "org/gradle/", "ModuleRegistry")).isTrue();
+
+        var classBytes = readClassFiles(TestJars.getLibraryJars().get(1)).firstEntry().getValue();
+        assertThat(AsmUtils.hasMethodReference(classBytes, 20, "org/gradle/", "ModuleRegistry")).isTrue();
+    }
+
+
+    @SneakyThrows
+    private static SequencedMap<String, byte[]> readClassFiles(Path jar) {
+        var index = readZipIndex(jar);
+        var result = new LinkedHashMap<String, byte[]>();
+        for (var i = 0; i < index.size(); i++) {
+            var name = index.getName(i);
+            if (name.endsWith(".class")) {
+                result.put(name, index.readEntry(i));
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private static String getSourceFileWithClassReader(byte[] bytes) {
+        var classReader = new ClassReader(bytes);
+        var sourceFile = new AtomicReference<@Nullable String>();
+        classReader.accept(new ClassVisitor(AsmUtils.LATEST_ASM_API) {
+            @Override
+            public void visitSource(@Nullable String source, @Nullable String debug) {
+                sourceFile.set(source);
+            }
+        }, SKIP_CODE);
+
+        var fileName = sourceFile.get();
+        if (fileName == null || fileName.isEmpty()) {
+            return null;
+        }
+        return substringBeforeLast(classReader.getClassName(), "/") + '/' + fileName;
+    }
+
+    private static List<String> getMethodReferenceOwners(byte[] bytes) {
+        var classReader = new ClassReader(bytes);
+        var charBuffer = new char[classReader.getMaxStringLength()];
+        var owners = new ArrayList<String>();
+        for (var index = 1; index < classReader.getItemCount(); index++) {
+            var offset = classReader.getItem(index);
+            if (offset == 0) {
+                continue; // the second slot of a long or a double constant
+            }
+            var tag = classReader.readByte(offset - 1);
+            if (tag == 10 || tag == 11) { // CONSTANT_Methodref, CONSTANT_InterfaceMethodref
+                owners.add(classReader.readClass(offset, charBuffer));
+            }
+        }
+        return owners;
+    }
+
+}
@@ -0,0 +1,98 @@
+package build.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.isSameFile;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class BlobStoreTest {
+
+    private static final Path STORE_DIR = Paths.get(System.getProperty("build-logic.blob-store.dir"));
+
+    @TempDir
+    Path tempDir;
+
+
+    @ParameterizedTest
+    @MethodSource("build.utils.TestJars#getLibraryJars")
+    void materializeFile(Path jar) throws Exception {
+        var target1 = tempDir.resolve("1/library.jar");
+        var target2 = tempDir.resolve("2/library.jar");
+        BlobStore.materialize(jar, target1);
+        BlobStore.materialize(jar, target2);
+
+        var content = readAllBytes(jar);
+        assertThat(readAllBytes(target1)).isEqualTo(content);
+        assertThat(readAllBytes(target2)).isEqualTo(content);
+        assertThat(isSameFile(target1, target2)).isTrue();
+        assertThat(isSameFile(target1, getBlob(content))).isTrue();
+    }
+
+    @Test
+    void materializeStream() throws Exception {
+        var content = "stream content".getBytes(UTF_8);
+        var target = tempDir.resolve("stream.txt");
+        BlobStore.materialize(new ByteArrayInputStream(content), target);
+
+        assertThat(readAllBytes(target)).isEqualTo(content);
+        assertThat(isSameFile(target, getBlob(content))).isTrue();
+
+        var source = tempDir.resolve("source.txt");
+        write(source, content);
+        var fileTarget = tempDir.resolve("file.txt");
+        BlobStore.materialize(source, fileTarget);
+        assertThat(isSameFile(fileTarget, target)).isTrue();
+    }
+
+    @Test
+    void existingTargetIsReplaced() throws Exception {
+        var first = "first".getBytes(UTF_8);
+        var second = "second".getBytes(UTF_8);
+        var target = tempDir.resolve("target.txt");
+
+        var firstSource = tempDir.resolve("first.txt");
+        write(firstSource, first);
+        var secondSource = tempDir.resolve("second.txt");
+        write(secondSource, second);
+
+        BlobStore.materialize(firstSource, target);
+        BlobStore.materialize(secondSource, target);
+
+        assertThat(readAllBytes(target)).isEqualTo(second);
+        // the target was replaced, not written through to the stored file
+        assertThat(readAllBytes(getBlob(first))).isEqualTo(first);
+    }
+
+    @Test
+    void deletedBlobIsStoredAgain() throws Exception {
+        var content = "deleted".getBytes(UTF_8);
+        var source = tempDir.resolve("source.txt");
+        write(source, content);
+        BlobStore.materialize(source, tempDir.resolve("1.txt"));
+        delete(getBlob(content));
+
+        var target = tempDir.resolve("2.txt");
+        BlobStore.materialize(source, target);
+
+        assertThat(readAllBytes(target)).isEqualTo(content);
+        assertThat(isSameFile(target, getBlob(content))).isTrue();
+    }
+
+
+    private static Path getBlob(byte[] content) {
+        var hash = Hashing.sha256().hashBytes(content).toString();
+        return STORE_DIR.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+}
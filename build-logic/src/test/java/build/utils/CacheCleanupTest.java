@@ -0,0 +1,82 @@
+package build.utils;
+
+import static build.utils.CacheCleanup.cleanupUnusedEntries;
+import static build.utils.CacheCleanup.markUsed;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.getFileAttributeView;
+import static java.nio.file.Files.readAttributes;
+import static java.nio.file.Files.write;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheCleanupTest {
+
+    private static final Instant LONG_AGO = Instant.now().minus(Duration.ofDays(365));
+
+    @TempDir
+    Path tempDir;
+
+
+    @Test
+    void deletesUnusedEntries() throws Exception {
+        var storeDir = tempDir.resolve("store");
+        var unusedFile = createEntry(storeDir.resolve("ab/unused.bin"), LONG_AGO);
+        var unusedDir = createEntry(storeDir.resolve("ab/unused-dir/file.bin"), LONG_AGO).getParent();
+        setLastAccessTime(unusedDir, LONG_AGO);
+        var usedFile = createEntry(storeDir.resolve("ab/used.bin"), Instant.now());
+        var hiddenFile = createEntry(storeDir.resolve("ab/.hidden"), LONG_AGO);
+
+        cleanupUnusedEntries(storeDir, 2);
+
+        assertThat(exists(unusedFile)).isFalse();
+        assertThat(exists(unusedDir)).isFalse();
+        assertThat(exists(usedFile)).isTrue();
+        assertThat(exists(hiddenFile)).isTrue();
+        assertThat(exists(storeDir.resolve("ab"))).isTrue();
+        assertThat(exists(storeDir.resolve(".last-cleanup"))).isTrue();
+    }
+
+    @Test
+    void cleansUpOncePerDay() throws Exception {
+        var storeDir = tempDir.resolve("store");
+        createDirectories(storeDir);
+        write(storeDir.resolve(".last-cleanup"), new byte[0]);
+        var unusedFile = createEntry(storeDir.resolve("unused.bin"), LONG_AGO);
+
+        cleanupUnusedEntries(storeDir, 1);
+
+        assertThat(exists(unusedFile)).isTrue();
+    }
+
+    @Test
+    void markUsedUpdatesLastAccessTime() throws Exception {
+        var file = createEntry(tempDir.resolve("entry.bin"), LONG_AGO);
+
+        markUsed(file);
+
+        var lastAccessTime = readAttributes(file, BasicFileAttributes.class).lastAccessTime().toInstant();
+        assertThat(lastAccessTime).isAfter(Instant.now().minus(Duration.ofHours(1)));
+    }
+
+
+    private static Path createEntry(Path file, Instant lastAccessTime) throws Exception {
+        createDirectories(file.getParent());
+        write(file, new byte[] {1});
+        setLastAccessTime(file, lastAccessTime);
+        return file;
+    }
+
+    private static void setLastAccessTime(Path file, Instant lastAccessTime) throws Exception {
+        getFileAttributeView(file, BasicFileAttributeView.class).setTimes(null, FileTime.from(lastAccessTime), null);
+    }
+
+}
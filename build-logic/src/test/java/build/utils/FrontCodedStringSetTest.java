@@ -0,0 +1,182 @@
+package build.utils;
+
+import static build.utils.ZipIndex.readZipIndex;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class FrontCodedStringSetTest {
+
+    static Stream<List<String>> stringLists() {
+        var lists = new ArrayList<List<String>>();
+        for (var jar : TestJars.getLibraryJars()) {
+            lists.add(getEntryNames(jar));
+        }
+        lists.add(List.of(
+            "",
+            "a",
+            "ab",
+            "abc",
+            "b",
+            "é",
+            "été",
+            "中文",
+            // these share the high surrogate, but not the whole code point
+            "😀",
+            "😀a",
+            "😁",
+            "\uFFFF"
+        ));
+        for (var size : List.of(1, 15, 16, 17, 32, 33)) {
+            lists.add(IntStream.range(0, size)
+                .mapToObj(i -> String.format("org/example/Class%03d.class", i))
+                .toList()
+            );
+        }
+        return lists.stream();
+    }
+
+    @SneakyThrows
+    private static List<String> getEntryNames(Path jar) {
+        var index = readZipIndex(jar);
+        var names = new TreeSet<String>();
+        for (var i = 0; i < index.size(); i++) {
+            names.add(index.getName(i));
+        }
+        return List.copyOf(names);
+    }
+
+
+    @ParameterizedTest
+    @MethodSource("stringLists")
+    void matchesSortedList(List<String> strings) {
+        var sorted = new TreeSet<>(strings).stream().toList();
+        var set = FrontCodedStringSet.copyOf(strings);
+
+        assertThat(set).hasSize(sorted.size());
+        assertThat(new ArrayList<>(set)).isEqualTo(sorted);
+        assertThat(set.getFirst()).isEqualTo(sorted.getFirst());
+        assertThat(set.getLast()).isEqualTo(sorted.getLast());
+        assertThat(set.reversed()).containsExactlyElementsOf(sorted.reversed());
+        assertThat(set).isEqualTo(new TreeSet<>(sorted));
+        assertThat(set.hashCode()).isEqualTo(new TreeSet<>(sorted).hashCode());
+
+        for (var i = 0; i < sorted.size(); i++) {
+            var string = sorted.get(i);
+            assertThat(set.get(i)).isEqualTo(string);
+            assertThat(set.indexOf(string)).isEqualTo(i);
+            assertThat(set.contains(string)).isTrue();
+
+            var missing = string + '\0';
+            if (!sorted.contains(missing)) {
+                assertThat(set.indexOf(missing)).isEqualTo(Collections.binarySearch(sorted, missing));
+                assertThat(set.contains(missing)).isFalse();
+            }
+        }
+        assertThatThrownBy(() -> set.get(sorted.size())).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stringLists")
+    void startingWith(List<String> strings) {
+        var sorted = new TreeSet<>(strings).stream().toList();
+        var set = FrontCodedStringSet.copyOfSorted(sorted);
+
+        var prefixes = new TreeSet<String>();
+        prefixes.add("");
+        prefixes.add("not/existing/");
+        for (var string : sorted) {
+            prefixes.add(string);
+            var lastSlash = string.lastIndexOf('/');
+            if (lastSlash >= 0) {
+                prefixes.add(string.substring(0, lastSlash + 1));
+            }
+        }
+
+        for (var prefix : prefixes) {
+            assertThat(set.startingWith(prefix)).as(prefix).isEqualTo(sorted.stream()
+                .filter(it -> it.startsWith(prefix))
+                .toList()
+            );
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("stringLists")
+    void writeToAndReadFrom(List<String> strings) throws Exception {
+        var set = FrontCodedStringSet.copyOf(strings);
+
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            set.writeTo(out);
+        }
+        var buf = ByteBuffer.wrap(bytes.toByteArray());
+        var readSet = FrontCodedStringSet.readFrom(buf);
+
+        assertThat(buf.hasRemaining()).isFalse();
+        assertThat(readSet).isEqualTo(set);
+        assertThat(new ArrayList<>(readSet)).isEqualTo(new ArrayList<>(set));
+    }
+
+    @Test
+    void intersection() {
+        var jars = TestJars.getLibraryJars();
+        var names = getEntryNames(jars.get(0));
+        var otherNames = getEntryNames(jars.get(2));
+
+        var expected = new TreeSet<>(names);
+        expected.retainAll(otherNames);
+        assertThat(expected).as("the jars must share some names, like META-INF/MANIFEST.MF").isNotEmpty();
+
+        var set = FrontCodedStringSet.copyOfSorted(names);
+        var otherSet = FrontCodedStringSet.copyOfSorted(otherNames);
+        assertThat(set.intersection(otherSet)).containsExactlyElementsOf(expected);
+        assertThat(otherSet.intersection(set)).containsExactlyElementsOf(expected);
+        assertThat(set.intersection(set)).isEqualTo(names);
+        assertThat(set.intersection(FrontCodedStringSet.copyOf(List.of()))).isEmpty();
+    }
+
+    @Test
+    void empty() {
+        var set = FrontCodedStringSet.copyOf(List.of());
+
+        assertThat(set).isEmpty();
+        assertThat(set.contains("")).isFalse();
+        assertThat(set.indexOf("a")).isEqualTo(-1);
+        assertThat(set.startingWith("")).isEmpty();
+        assertThatThrownBy(set::getFirst).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(set::getLast).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void copyOfSortedRejectsUnsortedStrings() {
+        assertThatThrownBy(() -> FrontCodedStringSet.copyOfSorted(List.of("b", "a")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FrontCodedStringSet.copyOfSorted(List.of("a", "a")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void copyOfRemovesDuplicates() {
+        var set = FrontCodedStringSet.copyOf(List.of("b", "a", "b"));
+
+        assertThat(set).containsExactly("a", "b");
+        assertThat(FrontCodedStringSet.copyOf(set)).isSameAs(set);
+    }
+
+}
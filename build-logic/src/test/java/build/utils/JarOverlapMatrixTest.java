@@ -0,0 +1,141 @@
+package build.utils;
+
+import static build.utils.JarOverlapMatrix.createJarOverlapMatrix;
+import static build.utils.JarOverlapMatrix.createJarPairsOverlapMatrix;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.newOutputStream;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import build.utils.JarOverlapMatrix.JarPair;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JarOverlapMatrixTest {
+
+    private static final Predicate<String> CLASS_FILES = name -> name.endsWith(".class");
+
+    @TempDir
+    Path tempDir;
+
+
+    @Test
+    void overlapsOfAllPairs() throws Exception {
+        var a = createJar("a.jar", "a/A.class", "common/Common.class");
+        var b = createJar("b.jar", "b/B.class", "common/Common.class");
+        var c = createJar("c.jar", "c/C.class", "common/Common.txt");
+        var resources = createJar("resources.jar", "META-INF/MANIFEST.MF");
+
+        var matrix = createJarOverlapMatrix(List.of(a, b, c, resources, a), CLASS_FILES, 2, null);
+
+        assertThat(matrix.overlaps(a, b)).isTrue();
+        assertThat(matrix.overlaps(b, a)).isTrue();
+        assertThat(matrix.overlaps(a, c)).isFalse();
+        assertThat(matrix.overlaps(b, c)).isFalse();
+        assertThat(matrix.overlaps(a, a)).isTrue();
+        assertThat(matrix.overlaps(resources, resources)).isFalse();
+
+        assertThat(matrix.getOverlappingJars(a)).containsExactly(a.getAbsoluteFile(), b.getAbsoluteFile());
+        assertThat(matrix.getOverlappingJars(c)).containsExactly(c.getAbsoluteFile());
+        assertThat(matrix.getOverlappingJars(resources)).isEmpty();
+    }
+
+    @Test
+    void jarOutsideOfMatrixIsRejected() throws Exception {
+        var a = createJar("a.jar", "a/A.class");
+        var b = createJar("b.jar", "b/B.class");
+
+        var matrix = createJarOverlapMatrix(List.of(a), CLASS_FILES, 1, null);
+
+        assertThatThrownBy(() -> matrix.overlaps(a, b)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> matrix.getOverlappingJars(b)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void overlapsOfGivenPairs() throws Exception {
+        var a = createJar("a.jar", "a/A.class", "common/Common.class");
+        var b = createJar("b.jar", "b/B.class", "common/Common.class");
+        var c = createJar("c.jar", "c/C.class", "common/Common.class");
+        var d = createJar("d.jar", "d/D.class");
+
+        var matrix = createJarPairsOverlapMatrix(
+            List.of(new JarPair(a, b), new JarPair(c, a), new JarPair(a, d)),
+            CLASS_FILES,
+            2,
+            null
+        );
+
+        assertThat(matrix.overlaps(a, b)).isTrue();
+        assertThat(matrix.overlaps(b, a)).isTrue();
+        assertThat(matrix.overlaps(a, c)).isTrue();
+        assertThat(matrix.overlaps(d, a)).isFalse();
+        assertThat(matrix.getOverlappingJars(a)).containsExactly(b.getAbsoluteFile(), c.getAbsoluteFile());
+
+        // b and c overlap, but this pair hasn't been calculated
+        assertThatThrownBy(() -> matrix.overlaps(b, c)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> matrix.overlaps(a, a)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(matrix.getOverlappingJars(b)).containsExactly(a.getAbsoluteFile());
+    }
+
+    @Test
+    void overlapsMatchEntryNames() throws Exception {
+        var jars = TestJars.getLibraryJars().stream()
+            .map(Path::toFile)
+            .toList();
+        Predicate<String> entryFilter = name -> !name.endsWith("/module-info.class");
+
+        var matrix = createJarOverlapMatrix(jars, entryFilter, 2, null);
+        var pairsMatrix = createJarPairsOverlapMatrix(
+            List.of(new JarPair(jars.get(0), jars.get(1)), new JarPair(jars.get(2), jars.get(1))),
+            entryFilter,
+            2,
+            null
+        );
+
+        for (var jar : jars) {
+            for (var otherJar : jars) {
+                var names = getEntryNames(jar, entryFilter);
+                names.retainAll(getEntryNames(otherJar, entryFilter));
+                assertThat(matrix.overlaps(jar, otherJar))
+                    .as("%s, %s", jar.getName(), otherJar.getName())
+                    .isEqualTo(!names.isEmpty());
+            }
+        }
+        assertThat(pairsMatrix.overlaps(jars.get(0), jars.get(1))).isEqualTo(matrix.overlaps(jars.get(0), jars.get(1)));
+        assertThat(pairsMatrix.overlaps(jars.get(1), jars.get(2))).isEqualTo(matrix.overlaps(jars.get(1), jars.get(2)));
+    }
+
+
+    private File createJar(String fileName, String... entryNames) throws Exception {
+        var file = tempDir.resolve(fileName);
+        try (var out = new ZipOutputStream(newOutputStream(file))) {
+            for (var entryName : entryNames) {
+                out.putNextEntry(new ZipEntry(entryName));
+                out.write(entryName.getBytes(UTF_8));
+            }
+        }
+        return file.toFile();
+    }
+
+    private static HashSet<String> getEntryNames(File jar, Predicate<String> entryFilter) throws Exception {
+        try (var zipFile = new ZipFile(jar)) {
+            var result = new HashSet<String>();
+            Collections.list(zipFile.entries()).stream()
+                .filter(entry -> !entry.isDirectory())
+                .map(ZipEntry::getName)
+                .filter(entryFilter)
+                .forEach(result::add);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package build.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import org.objectweb.asm.ClassReader;
+
+abstract class TestJars {
+
+    /**
+     * Returns real-world JAR files from the test classpath: a large one, a small one, and a multi-release one.
+     */
+    static List<Path> getLibraryJars() {
+        return Stream.of(ImmutableList.class, ClassReader.class, ObjectMapper.class)
+            .map(TestJars::getJar)
+            .toList();
+    }
+
+    @SneakyThrows
+    private static Path getJar(Class<?> type) {
+        return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+}
@@ -0,0 +1,119 @@
+package build.utils;
+
+import static build.utils.Utils.mapInParallel;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.gradle.api.BuildCancelledException;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class UtilsTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void mapInParallelKeepsOrderOfElements(int parallelism) {
+        var elements = IntStream.range(0, 20).boxed().toList();
+
+        var results = mapInParallel(elements, parallelism, "test", null, element -> {
+            // later elements complete first
+            sleep(Duration.ofMillis(20 - element));
+            return element % 3 == 0 ? null : "element-" + element;
+        });
+
+        assertThat(results).containsExactlyElementsOf(elements.stream()
+            .map(element -> element % 3 == 0 ? null : "element-" + element)
+            .toList()
+        );
+    }
+
+    @Test
+    @Timeout(30)
+    void mapInParallelFailsFast() {
+        var blockedStarted = new CountDownLatch(1);
+        var blockedInterrupted = new AtomicBoolean();
+        var neverReleased = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> mapInParallel(List.of(0, 1), 2, "test", null, element -> {
+            if (element == 0) {
+                // the first element blocks, so awaiting results in order would never see the failure
+                blockedStarted.countDown();
+                try {
+                    neverReleased.await();
+                } catch (InterruptedException e) {
+                    blockedInterrupted.set(true);
+                }
+                return element;
+            }
+
+            await(blockedStarted);
+            throw new IllegalStateException("failed " + element);
+        })).isInstanceOf(IllegalStateException.class).hasMessage("failed 1");
+
+        assertThat(blockedInterrupted).isTrue();
+    }
+
+    @Test
+    void mapInParallelCancelsRemainingElementsOnFailure() {
+        var elements = IntStream.range(0, 100).boxed().toList();
+        var started = new AtomicInteger();
+
+        assertThatThrownBy(() -> mapInParallel(elements, 2, "test", null, element -> {
+            started.incrementAndGet();
+            if (element == 0) {
+                throw new IllegalStateException("failed");
+            }
+            sleep(Duration.ofMillis(10));
+            return element;
+        })).hasMessage("failed");
+
+        assertThat(started.get()).isLessThan(elements.size());
+    }
+
+    @Test
+    void mapInParallelStopsOnBuildCancellation() {
+        var cancellationToken = new DefaultBuildCancellationToken();
+        cancellationToken.cancel();
+
+        assertThatThrownBy(() -> mapInParallel(List.of(1, 2, 3), 2, "test", cancellationToken, element -> element))
+            .isInstanceOf(BuildCancelledException.class);
+        assertThatThrownBy(() -> mapInParallel(List.of(1, 2, 3), 1, "test", cancellationToken, element -> element))
+            .isInstanceOf(BuildCancelledException.class);
+    }
+
+    @Test
+    void mapInParallelOfNoElements() {
+        assertThat(mapInParallel(Collections.<Integer>emptyList(), 4, "test", null, element -> element)).isEmpty();
+    }
+
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(30, SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
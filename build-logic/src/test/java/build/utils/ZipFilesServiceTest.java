@@ -0,0 +1,161 @@
+package build.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Path;
+import java.util.zip.ZipFile;
+import org.gradle.api.provider.Property;
+import org.junit.jupiter.api.Test;
+
+class ZipFilesServiceTest {
+
+    @Test
+    void leasesShareFileButNotChannel() {
+        var jar = TestJars.getLibraryJars().get(1).toFile();
+        var service = createService(2);
+
+        var lease1 = service.open(jar);
+        try (var lease2 = service.open(jar)) {
+            assertThat(lease1.getZipFile()).isSameAs(lease2.getZipFile());
+            assertThat(lease1.getIndex()).isSameAs(lease2.getIndex());
+
+            var channel1 = lease1.getChannel();
+            var channel2 = lease2.getChannel();
+            assertThat(channel1).isNotSameAs(channel2);
+            assertThat(lease1.getChannel()).isSameAs(channel1);
+
+            lease1.close();
+            assertThat(channel1.isOpen()).isFalse();
+            assertThat(channel2.isOpen()).isTrue();
+            assertThat(lease2.getZipFile().size()).isPositive();
+            assertThatThrownBy(lease1::getChannel).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void interruptedReaderDoesNotCloseChannelsOfOtherLeases() throws Exception {
+        var jar = TestJars.getLibraryJars().get(1).toFile();
+        var service = createService(2);
+
+        try (
+            var lease1 = service.open(jar);
+            var lease2 = service.open(jar)
+        ) {
+            var channel1 = lease1.getChannel();
+            var channel2 = lease2.getChannel();
+
+            // the interrupted status is cleared before any assertion is made
+            Throwable readException = null;
+            Thread.currentThread().interrupt();
+            try {
+                channel1.read(ByteBuffer.allocate(16), 0);
+            } catch (Throwable e) {
+                readException = e;
+            } finally {
+                assertThat(Thread.interrupted()).isTrue();
+            }
+            assertThat(readException).isInstanceOf(ClosedByInterruptException.class);
+
+            assertThat(channel1.isOpen()).isFalse();
+            assertThat(channel2.read(ByteBuffer.allocate(16), 0)).isEqualTo(16);
+
+            var reopenedChannel1 = lease1.getChannel();
+            assertThat(reopenedChannel1).isNotSameAs(channel1);
+            assertThat(reopenedChannel1.read(ByteBuffer.allocate(16), 0)).isEqualTo(16);
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedFileIsEvicted() {
+        var jars = TestJars.getLibraryJars();
+        var service = createService(2);
+
+        var zipFile0 = getZipFile(service, jars.get(0));
+        var zipFile1 = getZipFile(service, jars.get(1));
+        // the first file becomes the most recently used one
+        assertThat(getZipFile(service, jars.get(0))).isSameAs(zipFile0);
+
+        var zipFile2 = getZipFile(service, jars.get(2));
+
+        assertThat(isClosed(zipFile0)).isFalse();
+        assertThat(isClosed(zipFile1)).isTrue();
+        assertThat(isClosed(zipFile2)).isFalse();
+        assertThat(getZipFile(service, jars.get(1))).isNotSameAs(zipFile1);
+    }
+
+    @Test
+    void evictedFileIsClosedWhenLastLeaseIsReleased() {
+        var jars = TestJars.getLibraryJars();
+        var service = createService(1);
+
+        var lease = service.open(jars.get(0).toFile());
+        var zipFile = lease.getZipFile();
+        getZipFile(service, jars.get(1));
+
+        assertThat(isClosed(zipFile)).isFalse();
+        assertThat(lease.getIndex().size()).isPositive();
+
+        lease.close();
+        assertThat(isClosed(zipFile)).isTrue();
+    }
+
+    @Test
+    void closingServiceClosesFiles() {
+        var jars = TestJars.getLibraryJars();
+        var service = createService(2);
+
+        var releasedZipFile = getZipFile(service, jars.get(0));
+        var lease = service.open(jars.get(1).toFile());
+        var leasedZipFile = lease.getZipFile();
+
+        service.close();
+
+        assertThat(isClosed(releasedZipFile)).isTrue();
+        assertThat(isClosed(leasedZipFile)).isFalse();
+        lease.close();
+        assertThat(isClosed(leasedZipFile)).isTrue();
+
+        assertThatThrownBy(() -> service.open(jars.get(0).toFile())).isInstanceOf(IllegalStateException.class);
+    }
+
+
+    private static ZipFilesService createService(int maxOpenFiles) {
+        // only the value of the property is read by the service
+        @SuppressWarnings("unchecked")
+        var maxOpenFilesProperty = (Property<Integer>) Proxy.newProxyInstance(
+            Property.class.getClassLoader(),
+            new Class<?>[] {Property.class},
+            (_, method, _) -> switch (method.getName()) {
+                case "get", "getOrElse", "getOrNull" -> maxOpenFiles;
+                case "isPresent" -> true;
+                default -> throw new UnsupportedOperationException(method.toString());
+            }
+        );
+        return new ZipFilesService() {
+            @Override
+            public Parameters getParameters() {
+                return () -> maxOpenFilesProperty;
+            }
+        };
+    }
+
+    private static ZipFile getZipFile(ZipFilesService service, Path file) {
+        try (var lease = service.open(file.toFile())) {
+            return lease.getZipFile();
+        }
+    }
+
+    private static boolean isClosed(ZipFile zipFile) {
+        try {
+            zipFile.size();
+            return false;
+        } catch (IllegalStateException ignored) {
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package build.utils;
+
+import static build.utils.GradleModuleClasspathUtils.readModules;
+import static build.utils.ZipIndex.hashCentralDirectory;
+import static build.utils.ZipIndex.readZipIndex;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.isSameFile;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.readAttributes;
+import static java.nio.file.Files.setLastModifiedTime;
+import static java.nio.file.Files.write;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.hash.Hashing;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class ZipIndexStoreTest {
+
+    private static final Path STORE_DIR = Paths.get(System.getProperty("build-logic.zip-index-store.dir"));
+
+    @TempDir
+    Path tempDir;
+
+
+    @ParameterizedTest
+    @MethodSource("build.utils.TestJars#getLibraryJars")
+    void fileEntryNamesMatchZipFile(Path jar) throws Exception {
+        var file = tempDir.resolve("library.jar");
+        copy(jar, file);
+
+        var expected = new TreeSet<String>();
+        try (var zipFile = new ZipFile(file.toFile())) {
+            for (var entry : Collections.list(zipFile.entries())) {
+                if (!entry.isDirectory()) {
+                    expected.add(entry.getName());
+                }
+            }
+        }
+
+        var names = ZipIndexStore.getStoredFileEntryNames(file.toFile());
+        assertThat(new ArrayList<>(names)).isEqualTo(new ArrayList<>(expected));
+
+        var identityFile = getIdentityFile(file);
+        var contentFile = getContentFile(file);
+        assertThat(isRegularFile(contentFile)).isTrue();
+        assertThat(isSameFile(identityFile, contentFile)).isTrue();
+
+        // loaded from the store
+        assertThat(ZipIndexStore.getStoredFileEntryNames(file.toFile())).isEqualTo(names);
+    }
+
+    @Test
+    void contentEntryIsReusedForDifferentModificationTime() throws Exception {
+        var file = tempDir.resolve("library.jar");
+        copy(TestJars.getLibraryJars().get(1), file);
+
+        var names = ZipIndexStore.getStoredFileEntryNames(file.toFile());
+        var contentFile = getContentFile(file);
+        var contentFileKey = readAttributes(contentFile, BasicFileAttributes.class).fileKey();
+
+        setLastModifiedTime(file, FileTime.fromMillis(getLastModifiedTime(file).toMillis() - 60_000));
+        var identityFile = getIdentityFile(file);
+        assertThat(isRegularFile(identityFile)).isFalse();
+
+        assertThat(ZipIndexStore.getStoredFileEntryNames(file.toFile())).isEqualTo(names);
+        assertThat(isSameFile(identityFile, contentFile)).isTrue();
+        assertThat(readAttributes(contentFile, BasicFileAttributes.class).fileKey()).isEqualTo(contentFileKey);
+    }
+
+    @Test
+    void corruptedEntryIsRewritten() throws Exception {
+        var file = tempDir.resolve("library.jar");
+        copy(TestJars.getLibraryJars().get(1), file);
+
+        var names = ZipIndexStore.getStoredFileEntryNames(file.toFile());
+        var contentFile = getContentFile(file);
+        var storedBytes = readAllBytes(contentFile);
+        // the identity entry is a hard link, so it's corrupted too
+        write(contentFile, "BLZI corrupted".getBytes(UTF_8));
+
+        assertThat(ZipIndexStore.getStoredFileEntryNames(file.toFile())).isEqualTo(names);
+        assertThat(readAllBytes(contentFile)).isEqualTo(storedBytes);
+        assertThat(isSameFile(getIdentityFile(file), contentFile)).isTrue();
+    }
+
+    @Test
+    void gradleModules() throws Exception {
+        var file = tempDir.resolve("gradle-api.jar");
+        try (var out = new ZipOutputStream(newOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("gradle-core-api-classpath.properties"));
+            out.write("runtime=gradle-base-services,gradle-logging\nprojects=gradle-stdlib\n".getBytes(UTF_8));
+            out.putNextEntry(new ZipEntry("gradle-logging-classpath.properties"));
+            out.write("runtime=slf4j-api\nprojects=\n".getBytes(UTF_8));
+            out.putNextEntry(new ZipEntry("nested/ignored-classpath.properties"));
+            out.write("runtime=ignored\n".getBytes(UTF_8));
+        }
+
+        var modules = ZipIndexStore.getStoredGradleModules(file.toFile());
+        assertThat(modules).containsOnlyKeys("gradle-core-api", "gradle-logging");
+        assertThat(modules.get("gradle-core-api").scopePaths().get("runtime"))
+            .containsExactly("gradle-base-services", "gradle-logging");
+        assertThat(modules.get("gradle-logging").scopePaths().get("projects")).isEmpty();
+
+        var expected = readModules(readZipIndex(file));
+        assertThat(modules).isEqualTo(expected);
+        // loaded from the store
+        assertThat(ZipIndexStore.getStoredGradleModules(file.toFile())).isEqualTo(expected);
+        assertThat(ZipIndexStore.getStoredFileEntryNames(file.toFile())).containsExactly(
+            "gradle-core-api-classpath.properties",
+            "gradle-logging-classpath.properties",
+            "nested/ignored-classpath.properties"
+        );
+    }
+
+    @Test
+    void zip64AndDuplicateNames() throws Exception {
+        var file = tempDir.resolve("many-entries.zip");
+        var entriesCount = 0xFFFF + 10;
+        try (var out = new ZipOutputStream(newOutputStream(file))) {
+            for (var i = 0; i < entriesCount; i++) {
+                out.putNextEntry(new ZipEntry("entry-" + i));
+            }
+            out.putNextEntry(new ZipEntry("dir/"));
+        }
+        // ZipOutputStream refuses duplicates, so a name is patched to be the same as another one
+        write(file, replaceAll(readAllBytes(file), "entry-65544", "entry-65543"));
+
+        var names = ZipIndexStore.getStoredFileEntryNames(file.toFile());
+        assertThat(names).hasSize(entriesCount - 1);
+        assertThat(names).doesNotContain("entry-65544", "dir/");
+        assertThat(names).contains("entry-0", "entry-65543");
+    }
+
+
+    private static Path getIdentityFile(Path file) throws Exception {
+        var canonicalFile = file.toFile().getCanonicalFile();
+        var identity = canonicalFile.getPath() + '\0' + canonicalFile.length() + '\0' + canonicalFile.lastModified();
+        return STORE_DIR.resolve("id-" + Hashing.sha256().hashString(identity, UTF_8) + ".bin");
+    }
+
+    private static Path getContentFile(Path file) throws Exception {
+        return STORE_DIR.resolve("cd-" + hashCentralDirectory(file) + ".bin");
+    }
+
+    private static byte[] replaceAll(byte[] bytes, String target, String replacement) {
+        var targetBytes = target.getBytes(UTF_8);
+        var replacementBytes = replacement.getBytes(UTF_8);
+        for (var pos = 0; pos <= bytes.length - targetBytes.length; pos++) {
+            if (Arrays.equals(bytes, pos, pos + targetBytes.length, targetBytes, 0, targetBytes.length)) {
+                System.arraycopy(replacementBytes, 0, bytes, pos, replacementBytes.length);
+            }
+        }
+        return bytes;
+    }
+
+}
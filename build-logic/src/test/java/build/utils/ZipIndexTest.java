@@ -0,0 +1,280 @@
+package build.utils;
+
+import static build.utils.ZipIndex.hashCentralDirectory;
+import static build.utils.ZipIndex.readZipIndex;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class ZipIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+
+    @ParameterizedTest
+    @MethodSource("build.utils.TestJars#getLibraryJars")
+    void matchesZipFile(Path jar) throws Exception {
+        var index = readZipIndex(jar);
+
+        try (var zipFile = new ZipFile(jar.toFile())) {
+            var entries = Collections.list(zipFile.entries());
+            assertThat(index.size()).isEqualTo(entries.size());
+            for (var i = 0; i < entries.size(); i++) {
+                var entry = entries.get(i);
+                assertThat(index.getName(i)).isEqualTo(entry.getName());
+                assertThat(index.isDirectory(i)).isEqualTo(entry.isDirectory());
+                assertThat(index.getMethod(i)).isEqualTo(entry.getMethod());
+                assertThat(index.getCrc(i)).isEqualTo((int) entry.getCrc());
+                assertThat(index.getSize(i)).isEqualTo(entry.getSize());
+                assertThat(index.getCompressedSize(i)).isEqualTo(entry.getCompressedSize());
+                assertThat(index.indexOf(entry.getName())).isEqualTo(i);
+
+                if (!entry.isDirectory() && i % 10 == 0) {
+                    try (var in = zipFile.getInputStream(entry)) {
+                        assertThat(index.readEntry(i)).as(entry.getName()).isEqualTo(in.readAllBytes());
+                    }
+                }
+            }
+        }
+
+        assertThat(index.indexOf("not/existing")).isEqualTo(-1);
+    }
+
+    @Test
+    void duplicateNames() throws Exception {
+        var file = tempDir.resolve("duplicates.zip");
+        try (var out = new ZipOutputStream(newOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("dup-1.txt"));
+            out.write("first".getBytes(UTF_8));
+            out.putNextEntry(new ZipEntry("dup-2.txt"));
+            out.write("second".getBytes(UTF_8));
+        }
+        // ZipOutputStream refuses duplicates, so the second name is patched to be the same as the first one
+        write(file, replaceAll(readAllBytes(file), "dup-2.txt", "dup-1.txt"));
+
+        var index = readZipIndex(file);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getName(0)).isEqualTo("dup-1.txt");
+        assertThat(index.getName(1)).isEqualTo("dup-1.txt");
+        assertThat(index.indexOf("dup-1.txt")).isZero();
+        assertThat(index.readEntry(0)).asString(UTF_8).isEqualTo("first");
+        assertThat(index.readEntry(1)).asString(UTF_8).isEqualTo("second");
+
+        var streamedContents = new ArrayList<String>();
+        try (var in = new ZipInputStream(newInputStream(file))) {
+            while (in.getNextEntry() != null) {
+                streamedContents.add(new String(in.readAllBytes(), UTF_8));
+            }
+        }
+        assertThat(streamedContents).containsExactly("first", "second");
+    }
+
+    @Test
+    void zip64EndOfCentralDirectory() throws Exception {
+        // ZipOutputStream writes ZIP64 end of central directory records if there are at least 0xFFFF entries
+        var entriesCount = 0xFFFF + 10;
+        var file = tempDir.resolve("many-entries.zip");
+        try (var out = new ZipOutputStream(newOutputStream(file))) {
+            for (var i = 0; i < entriesCount; i++) {
+                out.putNextEntry(new ZipEntry("entry-" + i));
+                out.write(i);
+            }
+        }
+
+        var index = readZipIndex(file);
+        assertThat(index.size()).isEqualTo(entriesCount);
+        try (var zipFile = new ZipFile(file.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(entriesCount);
+        }
+        assertThat(index.getName(entriesCount - 1)).isEqualTo("entry-" + (entriesCount - 1));
+        assertThat(index.readEntry(entriesCount - 1)).containsExactly((byte) (entriesCount - 1));
+    }
+
+    @Test
+    void zip64ExtraFields() throws Exception {
+        var content = "ZIP64 content".getBytes(UTF_8);
+        var file = tempDir.resolve("zip64.zip");
+        write(file, createZip64Archive("zip64.txt", content));
+
+        try (var zipFile = new ZipFile(file.toFile())) {
+            var entry = zipFile.getEntry("zip64.txt");
+            assertThat(entry.getSize()).isEqualTo(content.length);
+            try (var in = zipFile.getInputStream(entry)) {
+                assertThat(in.readAllBytes()).isEqualTo(content);
+            }
+        }
+
+        var index = readZipIndex(file);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.getSize(0)).isEqualTo(content.length);
+        assertThat(index.getCompressedSize(0)).isEqualTo(content.length);
+        assertThat(index.getLocalHeaderOffset(0)).isZero();
+        assertThat(index.readEntry(0)).isEqualTo(content);
+    }
+
+    @Test
+    void prependedData() throws Exception {
+        var jar = TestJars.getLibraryJars().get(1);
+        var file = tempDir.resolve("prepended.zip");
+        try (var out = newOutputStream(file)) {
+            out.write(new byte[1000]);
+            copy(jar, out);
+        }
+
+        var index = readZipIndex(file);
+        var jarIndex = readZipIndex(jar);
+        assertThat(index.size()).isEqualTo(jarIndex.size());
+        for (var i = 0; i < index.size(); i++) {
+            assertThat(index.getLocalHeaderOffset(i)).isEqualTo(jarIndex.getLocalHeaderOffset(i) + 1000);
+        }
+        var lastEntry = index.size() - 1;
+        assertThat(index.readEntry(lastEntry)).isEqualTo(jarIndex.readEntry(lastEntry));
+
+        assertThat(hashCentralDirectory(file)).isEqualTo(hashCentralDirectory(jar));
+    }
+
+    @Test
+    void truncatedCentralDirectoryHeader() throws Exception {
+        var file = tempDir.resolve("truncated.zip");
+        try (var out = new ZipOutputStream(newOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("entry.txt"));
+        }
+        var bytes = readAllBytes(file);
+        var buf = ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN);
+        var cdOffset = buf.getInt(bytes.length - ZipIndex.END_OF_CENTRAL_DIRECTORY_SIZE + 16);
+        buf.putShort(cdOffset + 28, (short) 0x7FFF); // name length
+        write(file, bytes);
+
+        assertThatThrownBy(() -> readZipIndex(file))
+            .isInstanceOf(ZipException.class)
+            .hasMessageContaining(file.toString());
+    }
+
+    @Test
+    void notZipFile() throws Exception {
+        var file = tempDir.resolve("not.zip");
+        write(file, "not a ZIP file".getBytes(UTF_8));
+
+        assertThatThrownBy(() -> readZipIndex(file))
+            .isInstanceOf(ZipException.class)
+            .hasMessageContaining(file.toString());
+    }
+
+
+    private static byte[] replaceAll(byte[] bytes, String target, String replacement) {
+        var targetBytes = target.getBytes(UTF_8);
+        var replacementBytes = replacement.getBytes(UTF_8);
+        for (var pos = 0; pos <= bytes.length - targetBytes.length; pos++) {
+            if (Arrays.equals(bytes, pos, pos + targetBytes.length, targetBytes, 0, targetBytes.length)) {
+                System.arraycopy(replacementBytes, 0, bytes, pos, replacementBytes.length);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Creates an archive with a single stored entry, with all its sizes and offsets in ZIP64 extra fields,
+     * and with ZIP64 end of central directory records.
+     */
+    private static byte[] createZip64Archive(String name, byte[] content) {
+        var nameBytes = name.getBytes(UTF_8);
+        var crc = new CRC32();
+        crc.update(content);
+
+        var buf = ByteBuffer.allocate(1024).order(LITTLE_ENDIAN);
+
+        buf.putInt(ZipIndex.LOCAL_FILE_HEADER_SIGNATURE);
+        buf.putShort((short) 45); // version needed
+        buf.putShort((short) 0x0800); // flags: UTF-8
+        buf.putShort((short) ZipIndex.METHOD_STORED);
+        buf.putInt((1 << 21) | (1 << 16)); // DOS time
+        buf.putInt((int) crc.getValue());
+        buf.putInt((int) ZipIndex.ZIP64_MAGIC_VALUE);
+        buf.putInt((int) ZipIndex.ZIP64_MAGIC_VALUE);
+        buf.putShort((short) nameBytes.length);
+        buf.putShort((short) 20);
+        buf.put(nameBytes);
+        buf.putShort((short) ZipIndex.ZIP64_EXTRA_FIELD_ID);
+        buf.putShort((short) 16);
+        buf.putLong(content.length);
+        buf.putLong(content.length);
+        buf.put(content);
+
+        var cdOffset = buf.position();
+        buf.putInt(ZipIndex.CENTRAL_DIRECTORY_HEADER_SIGNATURE);
+        buf.putShort((short) 45); // version made by
+        buf.putShort((short) 45); // version needed
+        buf.putShort((short) 0x0800); // flags: UTF-8
+        buf.putShort((short) ZipIndex.METHOD_STORED);
+        buf.putInt((1 << 21) | (1 << 16)); // DOS time
+        buf.putInt((int) crc.getValue());
+        buf.putInt((int) ZipIndex.ZIP64_MAGIC_VALUE);
+        buf.putInt((int) ZipIndex.ZIP64_MAGIC_VALUE);
+        buf.putShort((short) nameBytes.length);
+        buf.putShort((short) 28);
+        buf.putShort((short) 0); // comment length
+        buf.putShort((short) 0); // disk number start
+        buf.putShort((short) 0); // internal attributes
+        buf.putInt(0); // external attributes
+        buf.putInt((int) ZipIndex.ZIP64_MAGIC_VALUE);
+        buf.put(nameBytes);
+        buf.putShort((short) ZipIndex.ZIP64_EXTRA_FIELD_ID);
+        buf.putShort((short) 24);
+        buf.putLong(content.length);
+        buf.putLong(content.length);
+        buf.putLong(0); // local header offset
+        var cdSize = buf.position() - cdOffset;
+
+        var zip64EocdOffset = buf.position();
+        buf.putInt(ZipIndex.ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        buf.putLong(ZipIndex.ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE - 12);
+        buf.putShort((short) 45);
+        buf.putShort((short) 45);
+        buf.putInt(0);
+        buf.putInt(0);
+        buf.putLong(1);
+        buf.putLong(1);
+        buf.putLong(cdSize);
+        buf.putLong(cdOffset);
+
+        buf.putInt(ZipIndex.ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE);
+        buf.putInt(0);
+        buf.putLong(zip64EocdOffset);
+        buf.putInt(1);
+
+        buf.putInt(ZipIndex.END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        buf.putShort((short) 0);
+        buf.putShort((short) 0);
+        buf.putShort((short) 0xFFFF);
+        buf.putShort((short) 0xFFFF);
+        buf.putInt((int) ZipIndex.ZIP64_MAGIC_VALUE);
+        buf.putInt((int) ZipIndex.ZIP64_MAGIC_VALUE);
+        buf.putShort((short) 0);
+
+        return Arrays.copyOf(buf.array(), buf.position());
+    }
+
+}
@@ -0,0 +1,237 @@
+package build.utils;
+
+import static build.utils.ZipIndex.readZipIndex;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class ZipWriterTest {
+
+    /**
+     * 1980-01-01 00:00 in the MS-DOS format.
+     */
+    private static final int DOS_TIME = (1 << 21) | (1 << 16);
+
+    @TempDir
+    Path tempDir;
+
+
+    @ParameterizedTest
+    @MethodSource("build.utils.TestJars#getLibraryJars")
+    void copiedEntriesMatchSource(Path jar) throws Exception {
+        var file = tempDir.resolve("copy.jar");
+        copyAllEntries(jar, file);
+
+        try (
+            var source = new ZipFile(jar.toFile());
+            var copy = new ZipFile(file.toFile())
+        ) {
+            var sourceEntries = Collections.list(source.entries());
+            var copyEntries = Collections.list(copy.entries());
+            assertThat(copyEntries).hasSameSizeAs(sourceEntries);
+            for (var i = 0; i < sourceEntries.size(); i++) {
+                var sourceEntry = sourceEntries.get(i);
+                var copyEntry = copyEntries.get(i);
+                assertThat(copyEntry.getName()).isEqualTo(sourceEntry.getName());
+                assertThat(copyEntry.isDirectory()).isEqualTo(sourceEntry.isDirectory());
+                assertThat(copyEntry.getMethod()).isEqualTo(sourceEntry.getMethod());
+                assertThat(copyEntry.getCrc()).isEqualTo(sourceEntry.getCrc());
+                assertThat(copyEntry.getSize()).isEqualTo(sourceEntry.getSize());
+                assertThat(copyEntry.getCompressedSize()).isEqualTo(sourceEntry.getCompressedSize());
+                assertThat(copyEntry.getTime()).isEqualTo(sourceEntry.getTime());
+                assertThat(copyEntry.getExtra()).isEqualTo(sourceEntry.getExtra());
+                try (
+                    var sourceIn = source.getInputStream(sourceEntry);
+                    var copyIn = copy.getInputStream(copyEntry)
+                ) {
+                    assertThat(copyIn.readAllBytes()).as(copyEntry.getName()).isEqualTo(sourceIn.readAllBytes());
+                }
+            }
+        }
+
+        // local file headers must be consistent with the central directory too
+        var streamedNames = new ArrayList<String>();
+        try (var in = new ZipInputStream(newInputStream(file))) {
+            for (var entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                in.readAllBytes();
+                streamedNames.add(entry.getName());
+            }
+        }
+        try (var source = new ZipFile(jar.toFile())) {
+            assertThat(streamedNames).isEqualTo(Collections.list(source.entries()).stream()
+                .map(ZipEntry::getName)
+                .toList()
+            );
+        }
+    }
+
+    @Test
+    void extraFieldsArePreserved() throws Exception {
+        var lastModifiedTime = FileTime.from(Instant.parse("2020-02-03T04:05:06Z"));
+        var source = tempDir.resolve("source.zip");
+        try (var out = new ZipOutputStream(newOutputStream(source))) {
+            var entry = new ZipEntry("entry.txt");
+            // an extended timestamp extra field is written for this time
+            entry.setLastModifiedTime(lastModifiedTime);
+            out.putNextEntry(entry);
+            out.write("content".getBytes(UTF_8));
+        }
+
+        var file = tempDir.resolve("copy.zip");
+        copyAllEntries(source, file);
+
+        try (
+            var sourceZip = new ZipFile(source.toFile());
+            var copyZip = new ZipFile(file.toFile())
+        ) {
+            var sourceEntry = sourceZip.getEntry("entry.txt");
+            var copyEntry = copyZip.getEntry("entry.txt");
+            assertThat(sourceEntry.getExtra()).isNotEmpty();
+            assertThat(copyEntry.getExtra()).isEqualTo(sourceEntry.getExtra());
+            assertThat(copyEntry.getLastModifiedTime()).isEqualTo(lastModifiedTime);
+        }
+    }
+
+    @Test
+    void putAndRenameEntries() throws Exception {
+        var source = tempDir.resolve("source.zip");
+        try (var out = new ZipOutputStream(newOutputStream(source))) {
+            out.putNextEntry(new ZipEntry("original.txt"));
+            out.write("copied".getBytes(UTF_8));
+        }
+        var sourceIndex = readZipIndex(source);
+
+        var file = tempDir.resolve("result.zip");
+        try (
+            var sourceChannel = FileChannel.open(source, READ);
+            var writer = new ZipWriter(file)
+        ) {
+            assertThat(writer.putEntry("put.txt", "put".getBytes(UTF_8), DOS_TIME)).isTrue();
+            assertThat(writer.copyEntry(sourceIndex, sourceChannel, 0, "renamed.txt")).isTrue();
+            assertThat(writer.hasEntry("renamed.txt")).isTrue();
+            assertThat(writer.hasEntry("original.txt")).isFalse();
+
+            assertThat(writer.putEntry("renamed.txt", "duplicate".getBytes(UTF_8), DOS_TIME)).isFalse();
+            assertThat(writer.copyEntry(sourceIndex, sourceChannel, 0, "put.txt")).isFalse();
+            writer.finish();
+        }
+
+        try (var zipFile = new ZipFile(file.toFile())) {
+            assertThat(Collections.list(zipFile.entries()))
+                .extracting(ZipEntry::getName)
+                .containsExactly("put.txt", "renamed.txt");
+
+            var putEntry = zipFile.getEntry("put.txt");
+            assertThat(putEntry.getTimeLocal()).isEqualTo(LocalDateTime.of(1980, 1, 1, 0, 0));
+            try (var in = zipFile.getInputStream(putEntry)) {
+                assertThat(in.readAllBytes()).asString(UTF_8).isEqualTo("put");
+            }
+            try (var in = zipFile.getInputStream(zipFile.getEntry("renamed.txt"))) {
+                assertThat(in.readAllBytes()).asString(UTF_8).isEqualTo("copied");
+            }
+        }
+    }
+
+    @Test
+    void zip64EndOfCentralDirectory() throws Exception {
+        var entriesCount = 0xFFFF + 10;
+        var file = tempDir.resolve("many-entries.zip");
+        try (var writer = new ZipWriter(file)) {
+            for (var i = 0; i < entriesCount; i++) {
+                writer.putEntry("entry-" + i, new byte[] {(byte) i}, DOS_TIME);
+            }
+            writer.finish();
+        }
+
+        try (var zipFile = new ZipFile(file.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(entriesCount);
+            var lastEntry = zipFile.getEntry("entry-" + (entriesCount - 1));
+            try (var in = zipFile.getInputStream(lastEntry)) {
+                assertThat(in.readAllBytes()).containsExactly((byte) (entriesCount - 1));
+            }
+        }
+        assertThat(readZipIndex(file).size()).isEqualTo(entriesCount);
+    }
+
+    @Test
+    void failedWriteDeletesFile() throws Exception {
+        var jar = TestJars.getLibraryJars().get(1);
+        var jarIndex = readZipIndex(jar);
+        var truncatedJar = tempDir.resolve("truncated.jar");
+        write(truncatedJar, Arrays.copyOf(readAllBytes(jar), 1000));
+
+        var file = tempDir.resolve("result.jar");
+        assertThatThrownBy(() -> {
+            try (
+                var sourceChannel = FileChannel.open(truncatedJar, READ);
+                var writer = new ZipWriter(file)
+            ) {
+                for (var i = 0; i < jarIndex.size(); i++) {
+                    try {
+                        writer.copyEntry(jarIndex, sourceChannel, i);
+                    } catch (ZipException e) {
+                        // a caller that ignores the failure still can't complete the archive
+                        assertThatThrownBy(writer::finish).isInstanceOf(IllegalStateException.class);
+                        throw e;
+                    }
+                }
+                writer.finish();
+            }
+        }).isInstanceOf(ZipException.class);
+
+        assertThat(exists(file)).isFalse();
+    }
+
+    @Test
+    void unfinishedFileIsDeleted() throws Exception {
+        var file = tempDir.resolve("result.zip");
+        assertThatThrownBy(() -> {
+            try (var writer = new ZipWriter(file)) {
+                writer.putEntry("entry.txt", "content".getBytes(UTF_8), DOS_TIME);
+                // like a cancelled build, the loop is left by an exception that isn't thrown by the writer
+                throw new IllegalStateException("cancelled");
+            }
+        }).hasMessage("cancelled");
+
+        assertThat(exists(file)).isFalse();
+    }
+
+
+    private static void copyAllEntries(Path source, Path target) throws Exception {
+        var sourceIndex = readZipIndex(source);
+        try (
+            var sourceChannel = FileChannel.open(source, READ);
+            var writer = new ZipWriter(target)
+        ) {
+            for (var i = 0; i < sourceIndex.size(); i++) {
+                writer.copyEntry(sourceIndex, sourceChannel, i);
+            }
+            writer.finish();
+        }
+    }
+
+}
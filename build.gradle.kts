@@ -19,6 +19,15 @@ buildLogic {
         .firstOrNull()
         ?.run { gradleVersion = this }
 
+    sequenceOf("gradle.versions")
+        .map(project::findProperty)
+        .filterNotNull()
+        .map(Any::toString)
+        .flatMap { it.split(',') }
+        .map(String::trim)
+        .filterNot(String::isBlank)
+        .forEach { gradleVersions.add(it) }
+
     license license@{
         this@license.name = "MIT License"
         this@license.url = "https://choosealicense.com/licenses/mit/"